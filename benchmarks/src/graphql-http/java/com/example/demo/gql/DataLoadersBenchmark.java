@@ -0,0 +1,63 @@
+package com.example.demo.gql;
+
+import com.example.demo.gql.types.Comment;
+import com.example.demo.service.PostService;
+import io.vertx.core.Future;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The grouping of comments by post in {@link DataLoaders#commentsLoader()}, the comments are served from memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataLoadersBenchmark {
+
+    @Param({"10", "100", "500"})
+    int posts;
+
+    @Param({"10"})
+    int commentsPerPost;
+
+    DataLoaders dataLoaders;
+    List<String> postIds;
+
+    @Setup
+    public void setup() {
+        postIds = new ArrayList<>(posts);
+        var comments = new ArrayList<Comment>(posts * commentsPerPost);
+        for (int i = 0; i < posts; i++) {
+            var postId = UUID.randomUUID().toString();
+            postIds.add(postId);
+            for (int j = 0; j < commentsPerPost; j++) {
+                comments.add(new Comment(UUID.randomUUID().toString(), "comment #" + j, LocalDateTime.now(), postId));
+            }
+        }
+        var postService = new PostService(null, null, null) {
+            @Override
+            public Future<List<Comment>> getCommentsByPostIdIn(Set<String> ids) {
+                return Future.succeededFuture(comments);
+            }
+        };
+        dataLoaders = new DataLoaders(null, postService);
+    }
+
+    @Benchmark
+    public List<List<Comment>> commentsLoader() {
+        // a new loader for every operation, otherwise its cache answers after the first one
+        var loader = dataLoaders.commentsLoader();
+        var result = loader.loadMany(postIds);
+        loader.dispatch();
+        return result.join();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import com.example.demo.gql.types.Comment;
+import com.example.demo.gql.types.Post;
+import com.example.demo.model.CommentEntity;
+import com.example.demo.model.PostEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    PostEntity post;
+    CommentEntity comment;
+
+    @Setup
+    public void setup() {
+        post = new PostEntity(UUID.randomUUID(), "Post title", "The content of the post", "DRAFT", LocalDateTime.now(), UUID.randomUUID());
+        comment = new CommentEntity(UUID.randomUUID(), "The content of the comment", LocalDateTime.now(), post.id());
+    }
+
+    @Benchmark
+    public Post postMapper() {
+        return PostService.POST_MAPPER.apply(post);
+    }
+
+    @Benchmark
+    public Comment commentMapper() {
+        return PostService.COMMENT_MAPPER.apply(comment);
+    }
+}
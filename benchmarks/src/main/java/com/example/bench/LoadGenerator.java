@@ -0,0 +1,315 @@
+package com.example.bench;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.VerticleBase;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An open-loop HTTP load generator for the `/posts` APIs of the REST modules(web, cdi, spring, rxjava3,
+ * mutiny-spring-hibernate).
+ * <p>
+ * Requests are started on a fixed schedule derived from the target rate, whether or not the previous ones have
+ * completed, and every latency is measured from the <em>intended</em> start time of the request. A stalled server
+ * therefore shows up in the percentiles instead of silently lowering the offered load(coordinated omission).
+ * <p>
+ * Everything runs on the context of this verticle, so the histograms and the id lists are not shared between threads.
+ *
+ * @see LoadOptions for the arguments.
+ */
+public class LoadGenerator extends VerticleBase {
+    private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class.getName());
+
+    public enum Operation {
+        LIST, GET, CREATE, UPDATE, DELETE
+    }
+
+    // latencies are recorded in microseconds, up to 1 minute with 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private static final class Stats {
+        private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private long errors;
+    }
+
+    private final LoadOptions options;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Promise<Void> completion = Promise.promise();
+
+    // the posts found at startup are never deleted, only the posts created by this run are
+    private final List<String> seedIds = new ArrayList<>();
+    private final List<String> createdIds = new ArrayList<>();
+
+    private WebClient client;
+    private long timerId;
+    private long intervalNanos;
+    private long nextStart;
+    private long measureStart;
+    private long end;
+    private boolean stopping;
+    private int inFlight;
+    private int maxInFlight;
+
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+        var weighted = options.mix().entrySet().stream().filter(e -> e.getValue() > 0).toList();
+        this.operations = new Operation[weighted.size()];
+        this.cumulativeWeights = new int[weighted.size()];
+        int total = 0;
+        for (int i = 0; i < weighted.size(); i++) {
+            total += weighted.get(i).getValue();
+            operations[i] = weighted.get(i).getKey();
+            cumulativeWeights[i] = total;
+        }
+        for (var operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) {
+        var options = LoadOptions.parse(args);
+        var generator = new LoadGenerator(options);
+
+        var vertx = Vertx.vertx();
+        vertx.deployVerticle(generator)
+            .compose(id -> generator.completion())
+            .onComplete(ar -> {
+                if (ar.failed()) {
+                    LOGGER.log(Level.SEVERE, "Load test failed: " + ar.cause().getMessage());
+                }
+                vertx.close();
+            });
+    }
+
+    // completed once the report is printed
+    public Future<Void> completion() {
+        return completion.future();
+    }
+
+    @Override
+    public Future<?> start() {
+        client = WebClient.create(vertx,
+            new WebClientOptions()
+                .setDefaultHost(options.host())
+                .setDefaultPort(options.port()),
+            new PoolOptions().setHttp1MaxSize(options.connections())
+        );
+
+        // collect the existing ids for the get and update requests
+        return client.get("/posts").send()
+            .map(HttpResponse::bodyAsJsonArray)
+            .onSuccess(posts -> {
+                for (int i = 0; i < posts.size(); i++) {
+                    seedIds.add(posts.getJsonObject(i).getString("id"));
+                }
+                LOGGER.log(Level.INFO, "found {0} posts at http://{1}:{2,number,#}, start the load test: {3}",
+                    new Object[]{seedIds.size(), options.host(), options.port(), options});
+                schedule();
+            });
+    }
+
+    @Override
+    public Future<?> stop() {
+        return client.close();
+    }
+
+    private void schedule() {
+        long now = System.nanoTime();
+        intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        nextStart = now;
+        measureStart = now + options.warmup().toNanos();
+        end = measureStart + options.duration().toNanos();
+        // a 1ms timer, the requests due since the last tick are all started at once
+        timerId = vertx.setPeriodic(1, id -> tick());
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        while (nextStart - now <= 0 && nextStart - end < 0) {
+            send(pick(), nextStart);
+            nextStart += intervalNanos;
+        }
+        if (nextStart - end >= 0 && !stopping) {
+            stopping = true;
+            vertx.cancelTimer(timerId);
+            vertx.setTimer(DRAIN_TIMEOUT_MILLIS, id -> finish());
+            if (inFlight == 0) {
+                finish();
+            }
+        }
+    }
+
+    private Operation pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    private void send(Operation operation, long intendedStart) {
+        // nothing to delete yet, a get is sent and recorded instead
+        var effective = operation == Operation.DELETE && createdIds.isEmpty() ? Operation.GET : operation;
+
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        request(effective).onComplete(ar -> {
+            inFlight--;
+            if (intendedStart - measureStart >= 0) {
+                var s = stats.get(effective);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+                s.histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                if (ar.failed() || ar.result() >= 400) {
+                    s.errors++;
+                }
+            }
+            if (stopping && inFlight == 0) {
+                finish();
+            }
+        });
+    }
+
+    private Future<Integer> request(Operation operation) {
+        return switch (operation) {
+            case LIST -> client.get("/posts").send().map(HttpResponse::statusCode);
+            case GET -> client.get("/posts/" + anyId()).send().map(HttpResponse::statusCode);
+            case CREATE -> client.post("/posts").sendJsonObject(newPost())
+                .map(response -> {
+                    var location = response.getHeader("Location");
+                    if (location != null) {
+                        createdIds.add(location.substring(location.lastIndexOf('/') + 1));
+                    }
+                    return response.statusCode();
+                });
+            case UPDATE -> client.put("/posts/" + anyId()).sendJsonObject(newPost()).map(HttpResponse::statusCode);
+            case DELETE -> client.delete("/posts/" + removeCreatedId()).send().map(HttpResponse::statusCode);
+        };
+    }
+
+    private String anyId() {
+        int size = seedIds.size() + createdIds.size();
+        if (size == 0) {
+            // an empty table, every get and update is a 404
+            return UUID.randomUUID().toString();
+        }
+        int index = ThreadLocalRandom.current().nextInt(size);
+        return index < seedIds.size() ? seedIds.get(index) : createdIds.get(index - seedIds.size());
+    }
+
+    private String removeCreatedId() {
+        // swap with the last one, the order does not matter
+        int index = ThreadLocalRandom.current().nextInt(createdIds.size());
+        int last = createdIds.size() - 1;
+        var id = createdIds.get(index);
+        createdIds.set(index, createdIds.get(last));
+        createdIds.remove(last);
+        return id;
+    }
+
+    private static JsonObject newPost() {
+        return new JsonObject()
+            .put("title", "load test " + ThreadLocalRandom.current().nextInt(1_000_000))
+            .put("content", "content of the load test post");
+    }
+
+    private void finish() {
+        if (completion.future().isComplete()) {
+            return;
+        }
+        System.out.println(report());
+        if (options.metricsPath() == null) {
+            completion.complete();
+            return;
+        }
+        client.get(options.metricsPath()).send()
+            .onSuccess(response -> System.out.println(serverReport(response.bodyAsString())))
+            .onFailure(throwable -> LOGGER.log(Level.WARNING, "Failed to scrape the server metrics: " + throwable.getMessage()))
+            .onComplete(ar -> completion.complete());
+    }
+
+    // the memory and threads of the server, from the JVM metrics of its Prometheus scrape
+    private static String serverReport(String scrape) {
+        double heap = 0;
+        double nonHeap = 0;
+        double threads = 0;
+        double gcPauseSeconds = 0;
+        for (var line : scrape.split("\n")) {
+            if (line.startsWith("#") || line.isBlank()) {
+                continue;
+            }
+            double value = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            if (line.startsWith("jvm_memory_used_bytes{")) {
+                if (line.contains("area=\"heap\"")) {
+                    heap += value;
+                } else {
+                    nonHeap += value;
+                }
+            } else if (line.startsWith("jvm_threads_live_threads")) {
+                threads += value;
+            } else if (line.startsWith("jvm_gc_pause_seconds_sum")) {
+                gcPauseSeconds += value;
+            }
+        }
+        return String.format("server: heap used %.1f MB, non-heap used %.1f MB, live platform threads %.0f, total gc pause %.3f s",
+            heap / (1024 * 1024), nonHeap / (1024 * 1024), threads, gcPauseSeconds);
+    }
+
+    private String report() {
+        double seconds = options.duration().toMillis() / 1000.0;
+        var total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+
+        var out = new StringBuilder();
+        out.append(String.format("target rate %d req/s for %ds after a %ds warm-up, %d connections, max in flight %d%s%n",
+            options.rate(), options.duration().toSeconds(), options.warmup().toSeconds(),
+            options.connections(), maxInFlight, inFlight > 0 ? ", " + inFlight + " not completed" : ""));
+        out.append(String.format("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+            "operation", "count", "errors", "req/s", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        for (var entry : stats.entrySet()) {
+            var s = entry.getValue();
+            if (s.histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(s.histogram);
+            totalErrors += s.errors;
+            out.append(line(entry.getKey().name().toLowerCase(Locale.ROOT), s.histogram, s.errors, seconds));
+        }
+        out.append(line("total", total, totalErrors, seconds));
+        return out.toString();
+    }
+
+    private static String line(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-10s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+            name,
+            histogram.getTotalCount(),
+            errors,
+            histogram.getTotalCount() / seconds,
+            histogram.getValueAtPercentile(50) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0,
+            histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0
+        );
+    }
+}
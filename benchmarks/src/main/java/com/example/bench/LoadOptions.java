@@ -0,0 +1,73 @@
+package com.example.bench;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Options of the {@link LoadGenerator}, parsed from `--name=value` arguments.
+ *
+ * <pre>
+ * --host=localhost --port=8888 --rate=500 --duration=60 --warmup=10 --connections=32
+ * --mix=list:10,get:60,create:10,update:15,delete:5 --metrics-path=/metrics
+ * </pre>
+ *
+ * @param rate        the target rate, in requests per second.
+ * @param connections the max HTTP/1.1 connections of the client.
+ * @param mix         the weight of each operation.
+ * @param metricsPath the Prometheus route of the server, to report its memory and threads after the run, or null.
+ */
+public record LoadOptions(String host,
+                          int port,
+                          int rate,
+                          Duration duration,
+                          Duration warmup,
+                          int connections,
+                          Map<LoadGenerator.Operation, Integer> mix,
+                          String metricsPath) {
+
+    public static final String DEFAULT_MIX = "list:10,get:60,create:10,update:15,delete:5";
+
+    public static LoadOptions parse(String[] args) {
+        var values = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        return new LoadOptions(
+            values.getOrDefault("host", "localhost"),
+            Integer.parseInt(values.getOrDefault("port", "8888")),
+            Integer.parseInt(values.getOrDefault("rate", "500")),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+            Integer.parseInt(values.getOrDefault("connections", "32")),
+            parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+            values.get("metrics-path")
+        );
+    }
+
+    static Map<LoadGenerator.Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<LoadGenerator.Operation, Integer>(LoadGenerator.Operation.class);
+        for (var entry : mix.split(",")) {
+            var pair = entry.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight, got: " + entry);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("The weight must not be negative: " + entry);
+            }
+            weights.put(LoadGenerator.Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix must have at least one positive weight: " + mix);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bench;
+
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory rows shaped like the result of `SELECT * FROM posts`, to benchmark the row mappers without a database.
+ */
+public final class PostRows {
+
+    private static final String[] COLUMNS = {
+        "id", "title", "content", "status", "author_id", "created_at", "updated_at", "version"
+    };
+
+    private PostRows() {
+    }
+
+    public static List<Row> posts(int size) {
+        var rows = new ArrayList<Row>(size);
+        var createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            rows.add(new SimpleRow(
+                UUID.randomUUID(),
+                "Post title #" + i,
+                "The content of the post #" + i,
+                "DRAFT",
+                UUID.randomUUID(),
+                createdAt.plusSeconds(i),
+                null,
+                0
+            ));
+        }
+        return rows;
+    }
+
+    private static final class SimpleRow implements Row {
+        private final Object[] values;
+
+        private SimpleRow(Object... values) {
+            this.values = values;
+        }
+
+        @Override
+        public String getColumnName(int pos) {
+            return pos < COLUMNS.length ? COLUMNS[pos] : null;
+        }
+
+        @Override
+        public int getColumnIndex(String column) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (COLUMNS[i].equals(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object getValue(int pos) {
+            return values[pos];
+        }
+
+        @Override
+        public Tuple addValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo;
+
+import com.example.bench.PostRows;
+import io.vertx.sqlclient.Row;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    Row row;
+
+    @Setup
+    public void setup() {
+        row = PostRows.posts(1).getFirst();
+    }
+
+    @Benchmark
+    public Post mapRow() {
+        return PostRepository.MAPPER.apply(row);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo;
+
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandDecodingBenchmark {
+
+    Buffer body;
+
+    @Setup
+    public void setup() {
+        body = Buffer.buffer("{\"title\": \"test title\", \"content\": \"test content of my post\"}");
+    }
+
+    // what PostsHandler did before PostCodec
+    @Benchmark
+    public CreatePostCommand mapTo() {
+        return body.toJsonObject().mapTo(CreatePostCommand.class);
+    }
+
+    @Benchmark
+    public CreatePostCommand postCodec() {
+        return PostCodec.decodeCommand(body);
+    }
+}
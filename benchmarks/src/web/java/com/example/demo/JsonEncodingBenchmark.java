@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import com.example.bench.PostRows;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonEncodingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int size;
+
+    List<Post> posts;
+
+    @Setup
+    public void setup() throws ClassNotFoundException {
+        // run the ObjectMapper customization in the MainVerticle static initializer
+        Class.forName(MainVerticle.class.getName());
+        posts = PostRows.posts(size).stream().map(PostRepository.MAPPER).toList();
+    }
+
+    // what PostsHandler did before PostCodec, a String then a Buffer
+    @Benchmark
+    public Buffer jsonEncode() {
+        return Buffer.buffer(Json.encode(posts));
+    }
+
+    @Benchmark
+    public Buffer jsonEncodeToBuffer() {
+        return Json.encodeToBuffer(posts);
+    }
+
+    @Benchmark
+    public Buffer postCodec() {
+        return PostCodec.encode(posts);
+    }
+}
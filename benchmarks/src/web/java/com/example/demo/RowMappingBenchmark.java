@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import com.example.bench.PostRows;
+import io.vertx.sqlclient.Row;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int size;
+
+    Row row;
+
+    // a RowSet is only an Iterable, its spliterator does not know the size
+    Iterable<Row> rowSet;
+
+    @Setup
+    public void setup() {
+        var rows = PostRows.posts(size);
+        row = rows.getFirst();
+        rowSet = rows::iterator;
+    }
+
+    @Benchmark
+    public Post mapRow() {
+        return PostRepository.MAPPER.apply(row);
+    }
+
+    // the materialization in PostRepository.findAll
+    @Benchmark
+    public List<Post> streamToList() {
+        return StreamSupport.stream(rowSet.spliterator(), false)
+            .map(PostRepository.MAPPER)
+            .toList();
+    }
+
+    // baseline for streamToList
+    @Benchmark
+    public List<Post> loopToList() {
+        var posts = new ArrayList<Post>(size);
+        for (Row r : rowSet) {
+            posts.add(PostRepository.MAPPER.apply(r));
+        }
+        return posts;
+    }
+}
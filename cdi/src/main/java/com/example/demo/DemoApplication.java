@@ -1,5 +1,6 @@
 package com.example.demo;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 import io.vertx.core.spi.VerticleFactory;
 import org.jboss.weld.environment.se.Weld;
@@ -19,7 +20,8 @@ public class DemoApplication {
 
         LOGGER.info("vertx clazz:" + vertx.getClass().getName());//Weld does not create proxy classes at runtime on @Singleton beans.
         LOGGER.info("factory clazz:" + factory.getClass().getName());
-        // deploy MainVerticle via verticle identifier name
-        vertx.deployVerticle(factory.prefix() + ":" + MainVerticle.class.getName());
+        // deploy one MainVerticle instance per core via verticle identifier name, all of them share the same port
+        int instances = Integer.getInteger("instances", Runtime.getRuntime().availableProcessors());
+        vertx.deployVerticle(factory.prefix() + ":" + MainVerticle.class.getName(), new DeploymentOptions().setInstances(instances));
     }
 }
@@ -8,6 +8,7 @@ import io.vertx.core.VerticleBase;
 import io.vertx.core.json.jackson.DatabindCodec;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
@@ -61,6 +62,9 @@ public class MainVerticle extends VerticleBase {
         // Configure routes
         var router = routes(postsHandler);
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx);
+
         // Create the HTTP server
         return vertx.createHttpServer()
             // Handle every request using the router
@@ -90,6 +94,9 @@ public class MainVerticle extends VerticleBase {
         router.put("/posts/:id").consumes("application/json").handler(BodyHandler.create()).handler(handlers::update);
         router.delete("/posts/:id").handler(handlers::delete);
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
         router.get("/hello").handler(rc -> rc.response().end("Hello from my route"));
 
         return router;
@@ -1,6 +1,7 @@
 package com.example.demo;
 
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.sqlclient.*;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -9,6 +10,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.StreamSupport;
@@ -19,7 +21,8 @@ import static java.util.stream.Collectors.toList;
 public class PostRepository {
     private static final Logger LOGGER = Logger.getLogger(PostRepository.class.getName());
 
-    private static final Function<Row, Post> MAPPER = (Row row) ->
+    // package private, used by the benchmarks module
+    static final Function<Row, Post> MAPPER = (Row row) ->
         new Post(
             row.getUUID("id"),
             row.getString("title"),
@@ -28,16 +31,49 @@ public class PostRepository {
         );
 
     private  Pool client;
+    private PostCache cache;
+    private final List<Handler<UUID>> writeHandlers = new CopyOnWriteArrayList<>();
+
+    // concurrent identical reads share one query, see `SingleFlight`
+    // a load is only shared within the cache generation it started in, see `findById`
+    private record ByIdKey(UUID id, long generation) {
+    }
+
+    private final SingleFlight<ByIdKey, Post> byId = SingleFlight.create("posts.findById");
+    private final SingleFlight<String, List<Post>> all = SingleFlight.create("posts.findAll");
 
     public PostRepository() {
     }
 
     @Inject
-    public PostRepository(Pool client) {
+    public PostRepository(Pool client, PostCache cache) {
         this.client = client;
+        this.cache = cache;
+    }
+
+    /**
+     * Register a handler notified after every write, with the id of the written post,
+     * or null when several posts may have changed.
+     */
+    public PostRepository writeHandler(Handler<UUID> handler) {
+        writeHandlers.add(handler);
+        return this;
+    }
+
+    private void written(UUID id) {
+        if (id == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(id);
+        }
+        writeHandlers.forEach(handler -> handler.handle(id));
     }
 
     public Future<List<Post>> findAll() {
+        return all.execute("", key -> loadAll());
+    }
+
+    private Future<List<Post>> loadAll() {
         return client.query("SELECT * FROM posts ORDER BY id ASC")
             .execute()
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
@@ -48,6 +84,12 @@ public class PostRepository {
 
     public Future<Post> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
+        // a caller missing right after an invalidation must not join a load which started before the write, it would cache
+        // the old post under the new generation
+        return cache.getOrLoad(id, key -> byId.execute(new ByIdKey(key, cache.generation()), k -> loadById(k.id())));
+    }
+
+    private Future<Post> loadById(UUID id) {
         String sql = "SELECT * FROM posts WHERE id=$1";
         return client.preparedQuery(sql)
             .execute(Tuple.of(id))
@@ -61,7 +103,8 @@ public class PostRepository {
         String sql = "INSERT INTO posts(title, content) VALUES ($1, $2) RETURNING (id)";
         return client.preparedQuery(sql)
             .execute(Tuple.of(data.title(), data.content()))
-            .map(rs -> rs.iterator().next().getUUID("id"));
+            .map(rs -> rs.iterator().next().getUUID("id"))
+            .onSuccess(this::written);
     }
 
     public Future<Integer> saveAll(List<Post> data) {
@@ -72,21 +115,24 @@ public class PostRepository {
         String sql = "INSERT INTO posts (title, content) VALUES ($1, $2)";
         return client.preparedQuery(sql)
             .executeBatch(tuples)
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(null));
     }
 
     public Future<Integer> update(Post data) {
         String sql = "UPDATE posts SET title=$1, content=$2 WHERE id=$3";
         return client.preparedQuery(sql)
             .execute(Tuple.of(data.title(), data.content(), data.id()))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(data.id()));
     }
 
     public Future<Integer> deleteAll() {
         String sql = "DELETE FROM posts";
         return client.query(sql)
             .execute()
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(null));
     }
 
     public Future<Integer> deleteById(UUID id) {
@@ -94,7 +140,8 @@ public class PostRepository {
         String sql = "DELETE FROM posts WHERE id=$1";
         return client.preparedQuery(sql)
             .execute(Tuple.of(id))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(id));
     }
 
 }
@@ -14,13 +14,16 @@ class PostsHandler {
     private static final Logger LOGGER = Logger.getLogger(PostsHandler.class.getSimpleName());
 
     private  PostRepository posts;
+    private ResponseCache responseCache;
 
     public PostsHandler() {
     }
 
     @Inject
-    PostsHandler(PostRepository posts) {
+    PostsHandler(PostRepository posts, ResponseCache responseCache) {
         this.posts = posts;
+        this.responseCache = responseCache;
+        posts.writeHandler(id -> responseCache.invalidateAll());
     }
 
     public void all(RoutingContext rc) {
@@ -29,9 +32,21 @@ class PostsHandler {
 //        var limit = params.get("limit") == null ? 10 : Integer.parseInt(params.get("q"));
 //        var offset = params.get("offset") == null ? 0 : Integer.parseInt(params.get("offset"));
 //        LOGGER.log(Level.INFO, " find by keyword: q={0}, limit={1}, offset={2}", new Object[]{q, limit, offset});
+        if (responseCache.isEnabled()) {
+            var cached = responseCache.get("");
+            if (cached != null) {
+                rc.response().end(cached.body());
+                return;
+            }
+        }
+        var generation = responseCache.generation();
         this.posts.findAll()
             .onSuccess(
-                data -> rc.response().end(Json.encode(data))
+                data -> {
+                    var body = Json.encodeToBuffer(data);
+                    responseCache.put("", new ResponseCache.Entry(body, null), generation);
+                    rc.response().end(body);
+                }
             );
     }
 
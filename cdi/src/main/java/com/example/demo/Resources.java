@@ -1,6 +1,7 @@
 package com.example.demo;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.spi.VerticleFactory;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
@@ -11,6 +12,7 @@ import jakarta.enterprise.inject.Disposes;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Singleton;
 
+import java.time.Duration;
 import java.util.logging.Logger;
 
 @ApplicationScoped
@@ -20,7 +22,8 @@ public class Resources {
     @Produces
     @Singleton
     public Vertx vertx(VerticleFactory verticleFactory) {
-        Vertx vertx = Vertx.vertx();
+        // enable the Micrometer metrics, see `Metrics`
+        Vertx vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(Metrics.options()));
         vertx.registerVerticleFactory(verticleFactory);
         return vertx;
     }
@@ -32,10 +35,15 @@ public class Resources {
             .setHost("localhost")
             .setDatabase("blogdb")
             .setUser("user")
-            .setPassword("password");
+            .setPassword("password")
+            .setPipeliningLimit(Integer.getInteger("pg.pipelining-limit", PgConnectOptions.DEFAULT_PIPELINING_LIMIT));
 
-        // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        // Pool Options, the pool is shared by all the MainVerticle instances,
+        // its connections are spread over `pg.event-loop-size` event loops.
+        PoolOptions poolOptions = new PoolOptions()
+            .setMaxSize(Integer.getInteger("pg.max-size", 5))
+            .setMaxWaitQueueSize(Integer.getInteger("pg.max-wait-queue-size", PoolOptions.DEFAULT_MAX_WAIT_QUEUE_SIZE))
+            .setEventLoopSize(Integer.getInteger("pg.event-loop-size", Runtime.getRuntime().availableProcessors()));
 
         // Create the pool from the data object
         return PgBuilder.pool()
@@ -45,6 +53,24 @@ public class Resources {
             .build();
     }
 
+    // disabled unless the `posts.cache.max-size` system property is set
+    @Produces
+    @Singleton
+    public PostCache postCache() {
+        int maxSize = Integer.getInteger("posts.cache.max-size", 0);
+        long ttl = Long.getLong("posts.cache.ttl-seconds", 60L);
+        return PostCache.create(maxSize, Duration.ofSeconds(ttl));
+    }
+
+    // disabled unless the `posts.response-cache.max-entries` system property is set
+    @Produces
+    @Singleton
+    public ResponseCache responseCache() {
+        int maxEntries = Integer.getInteger("posts.response-cache.max-entries", 0);
+        int maxBytes = Integer.getInteger("posts.response-cache.max-bytes", 1024 * 1024);
+        return ResponseCache.create(maxEntries, maxBytes);
+    }
+
     public void disposesPgPool(@Disposes Pool pgPool) {
         LOGGER.info("disposing PgPool...");
         pgPool.close().onSuccess(v -> LOGGER.info("PgPool is closed successfully."));
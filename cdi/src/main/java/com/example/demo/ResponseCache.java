@@ -0,0 +1,96 @@
+package com.example.demo;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialized list responses keyed by their query parameters.
+ * <p>
+ * The whole cache is dropped on any write, a response larger than {@code maxBytes} is never kept.
+ * A cache created with {@code maxEntries} 0 is disabled.
+ */
+public class ResponseCache {
+
+    public record Entry(Buffer body, String link) {
+    }
+
+    private final int maxEntries;
+    private final int maxBytes;
+    private final Map<String, Entry> entries;
+
+    // bumped on every invalidation, a response rendered before an invalidation must not be cached.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ResponseCache(int maxEntries, int maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static ResponseCache create(int maxEntries, int maxBytes) {
+        return new ResponseCache(maxEntries, maxBytes);
+    }
+
+    public static ResponseCache disabled() {
+        return new ResponseCache(0, 0);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    // null on a miss
+    public synchronized Entry get(String key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    // the generation to pass to `put` once the response is rendered
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(String key, Entry entry, long renderedGeneration) {
+        if (isEnabled() && renderedGeneration == generation && entry.body().length() <= maxBytes) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResponseCache{size=" + entries.size() + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.demo;
 
+import com.example.demo.gql.CostAnalysisInstrumentation;
 import com.example.demo.gql.CustomDataFetchingExceptionHandler;
 import com.example.demo.gql.DataFetchers;
 import com.example.demo.gql.DataLoaders;
+import com.example.demo.gql.PersistedQueries;
 import com.example.demo.gql.directives.UpperCaseDirectiveWiring;
 import com.example.demo.gql.scalars.Scalars;
 import com.example.demo.repository.AuthorRepository;
 import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PoolRouter;
 import com.example.demo.repository.PostRepository;
 import com.example.demo.service.AuthorService;
 import com.example.demo.service.PostService;
@@ -14,6 +17,8 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import graphql.GraphQL;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
 import graphql.schema.GraphQLCodeRegistry;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.PropertyDataFetcher;
@@ -24,11 +29,13 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import io.vertx.core.Future;
 import io.vertx.core.VerticleBase;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.jackson.DatabindCodec;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.graphql.*;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.sqlclient.Pool;
@@ -42,6 +49,7 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.logging.LogManager;
@@ -68,19 +76,22 @@ public class MainVerticle extends VerticleBase {
         //setupLogging();
 
         //Create a PgPool instance
-        var pgPool = pgPool();
+        var pgPool = pgPool(config().getJsonObject("pg", new JsonObject()));
+
+        // the reads go to a replica when `replica` is configured, see `PoolRouter`
+        var pools = pools(pgPool);
 
         // instantiate repos
-        var postRepository = new PostRepository(pgPool);
-        var commentRepository = new CommentRepository(pgPool);
-        var authorRepository = new AuthorRepository(pgPool);
+        var postRepository = new PostRepository(pools);
+        var commentRepository = new CommentRepository(pools);
+        var authorRepository = new AuthorRepository(pools);
 
         //assemble PostService
         var postService = new PostService(postRepository, commentRepository, authorRepository);
         var authorService = new AuthorService(authorRepository);
 
-        // assemble DataLoaders
-        var dataLoaders = new DataLoaders(authorService, postService);
+        // assemble DataLoaders, with a cache shared by the executions when `dataLoaderCache.maxSize` is configured
+        var dataLoaders = dataLoaders(authorService, postService);
 
         //assemble DataFetcher
         var dataFetchers = new DataFetchers(postService);
@@ -95,6 +106,9 @@ public class MainVerticle extends VerticleBase {
         HttpServerOptions httpServerOptions = new HttpServerOptions()
             .addWebSocketSubProtocol("graphql-ws");
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx);
+
         // Initializing the sample data, then start the HTTP server
         var initializer = new DataInitializer(pgPool);
         return initializer.run()
@@ -132,6 +146,9 @@ public class MainVerticle extends VerticleBase {
             .build();
         router.post("/graphql").handler(graphQLHandler);
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
         // register `/graphiql` endpoint for the GraphiQL UI
         GraphiQLHandlerOptions graphiqlOptions = new GraphiQLHandlerOptions()
             .setEnabled(true);
@@ -143,11 +160,28 @@ public class MainVerticle extends VerticleBase {
         return router;
     }
 
+    private DataLoaders dataLoaders(AuthorService authorService, PostService postService) {
+        var dataLoaders = new DataLoaders(authorService, postService);
+        var cacheConfig = config().getJsonObject("dataLoaderCache", new JsonObject());
+        int maxSize = cacheConfig.getInteger("maxSize", 0);
+        if (maxSize > 0) {
+            long ttl = cacheConfig.getLong("ttlSeconds", 30L);
+            log.info("data loader cache: maxSize={}, ttlSeconds={}", maxSize, ttl);
+            dataLoaders.sharedCache(vertx, maxSize, Duration.ofSeconds(ttl));
+        }
+        return dataLoaders;
+    }
+
+    // a registry per execution, the loaders and their caches are dropped with it
     private Function<RoutingContext, DataLoaderRegistry> buildDataLoaderRegistry(DataLoaders dataLoaders) {
-        DataLoaderRegistry registry = new DataLoaderRegistry();
-        registry.register("commentsLoader", dataLoaders.commentsLoader());
-        registry.register("authorsLoader", dataLoaders.authorsLoader());
-        return rc -> registry;
+        return rc -> {
+            DataLoaderRegistry registry = new DataLoaderRegistry();
+            registry.register("commentsLoader", dataLoaders.commentsLoader());
+            registry.register("authorsLoader", dataLoaders.authorsLoader());
+            registry.register("commentsConnectionLoader", dataLoaders.commentsConnectionLoader());
+            registry.register("postsByAuthorLoader", dataLoaders.postsByAuthorLoader());
+            return registry;
+        };
     }
 
     @SneakyThrows
@@ -161,13 +195,33 @@ public class MainVerticle extends VerticleBase {
     private GraphQL buildGraphQL(GraphQLSchema graphQLSchema) {
         return GraphQL.newGraphQL(graphQLSchema)
             .defaultDataFetcherExceptionHandler(new CustomDataFetchingExceptionHandler())
+            .preparsedDocumentProvider(preparsedDocumentProvider())
             //.queryExecutionStrategy()
             //.mutationExecutionStrategy()
             //.subscriptionExecutionStrategy()
-            //.instrumentation()
+            .instrumentation(costAnalysis())
             .build();
     }
 
+    // the parsed and validated documents are cached by the hash of the query, see `PersistedQueries`
+    private PreparsedDocumentProvider preparsedDocumentProvider() {
+        int maxSize = config().getJsonObject("persistedQueries", new JsonObject()).getInteger("maxSize", 1000);
+        if (maxSize <= 0) {
+            return NoOpPreparsedDocumentProvider.INSTANCE;
+        }
+        log.info("persisted queries: maxSize={}", maxSize);
+        return PersistedQueries.create(maxSize);
+    }
+
+    // reject the operations too deep or too costly, see `CostAnalysisInstrumentation`
+    private CostAnalysisInstrumentation costAnalysis() {
+        var costConfig = config().getJsonObject("costAnalysis", new JsonObject());
+        int maxDepth = costConfig.getInteger("maxDepth", 10);
+        int maxCost = costConfig.getInteger("maxCost", 1000);
+        log.info("cost analysis: maxDepth={}, maxCost={}", maxDepth, maxCost);
+        return CostAnalysisInstrumentation.create(maxDepth, maxCost);
+    }
+
     private GraphQLSchema buildGraphQLSchema(TypeDefinitionRegistry typeDefinitionRegistry, RuntimeWiring runtimeWiring) {
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
@@ -215,7 +269,8 @@ public class MainVerticle extends VerticleBase {
         return GraphQLCodeRegistry.newCodeRegistry()
             .dataFetchers("Query", Map.of(
                 "postById", dataFetchers.getPostById(),
-                "allPosts", dataFetchers.getAllPosts()
+                "allPosts", dataFetchers.getAllPosts(),
+                "postsConnection", dataFetchers.getPostsConnection()
             ))
             .dataFetchers("Mutation", Map.of(
                 "createPost", dataFetchers.createPost(),
@@ -227,7 +282,11 @@ public class MainVerticle extends VerticleBase {
             ))
             .dataFetchers("Post", Map.of(
                 "author", dataFetchers.authorOfPost(),
-                "comments", dataFetchers.commentsOfPost()
+                "comments", dataFetchers.commentsOfPost(),
+                "commentsConnection", dataFetchers.commentsConnectionOfPost()
+            ))
+            .dataFetchers("Author", Map.of(
+                "posts", dataFetchers.postsOfAuthor()
             ))
             //.typeResolver()
             //.fieldVisibility()
@@ -235,16 +294,32 @@ public class MainVerticle extends VerticleBase {
             .build();
     }
 
-    private Pool pgPool() {
+    /**
+     * Route the reads to a replica when the `replica` object of the deployment config is set,
+     * e.g. `{"replica": {"host": "localhost", "port": 5433}}`. The reads fall back to the primary while the replica
+     * is down or lags more than `replica.maxLagMillis` behind.
+     */
+    private PoolRouter pools(Pool primary) {
+        var replicaConfig = config().getJsonObject("replica");
+        if (replicaConfig == null) {
+            return PoolRouter.single(primary);
+        }
+        long checkInterval = replicaConfig.getLong("checkIntervalMillis", 1000L);
+        long maxLag = replicaConfig.getLong("maxLagMillis", 1000L);
+        log.info("replica: {}, checkIntervalMillis={}, maxLagMillis={}", replicaConfig.getString("host", "localhost"), checkInterval, maxLag);
+        return PoolRouter.create(vertx, primary, pgPool(replicaConfig), Duration.ofMillis(checkInterval), Duration.ofMillis(maxLag));
+    }
+
+    private Pool pgPool(JsonObject pgConfig) {
         PgConnectOptions connectOptions = new PgConnectOptions()
-            .setPort(5432)
-            .setHost("localhost")
-            .setDatabase("blogdb")
-            .setUser("user")
-            .setPassword("password");
+            .setPort(pgConfig.getInteger("port", 5432))
+            .setHost(pgConfig.getString("host", "localhost"))
+            .setDatabase(pgConfig.getString("database", "blogdb"))
+            .setUser(pgConfig.getString("user", "user"))
+            .setPassword(pgConfig.getString("password", "password"));
 
         // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        PoolOptions poolOptions = new PoolOptions().setMaxSize(pgConfig.getInteger("maxSize", 5));
 
         // Create the pool from the data object
         return PgBuilder.pool()
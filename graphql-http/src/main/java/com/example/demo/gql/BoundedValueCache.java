@@ -0,0 +1,129 @@
+package com.example.demo.gql;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.micrometer.backends.BackendRegistries;
+import org.dataloader.ValueCache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ValueCache} shared by the data loaders of all the executions, bounded in size and in time.
+ * <p>
+ * Every execution gets its own data loaders, whose future caches are dropped with the execution. This cache sits
+ * behind them, so a value loaded by an execution is served to the following ones until it expires after the TTL, or
+ * is evicted as the least recently used once {@code maxSize} is reached.
+ * <p>
+ * There is one cache per loader name and Vert.x instance, kept in a local map of its shared data, so the loaders of
+ * all the MainVerticle instances share it, and an entry cleared by one of them, e.g. by `addComment`, is cleared for
+ * all of them. The map is synchronized. The other nodes of a cluster keep their own caches, their entries expire
+ * after the TTL. The hits, misses and hit ratio of the cache are reported as
+ * `graphql.dataloader.cache.hits`/`misses`/`hit.ratio` tagged with the loader name.
+ */
+public class BoundedValueCache<K, V> implements ValueCache<K, V>, Shareable {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private BoundedValueCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedValueCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * The cache of the {@code name} loader, created by the first MainVerticle instance asking for it, the size and TTL
+     * of the following ones are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> BoundedValueCache<K, V> shared(Vertx vertx, String name, int maxSize, Duration ttl) {
+        LocalMap<String, BoundedValueCache<?, ?>> caches = vertx.sharedData().getLocalMap(BoundedValueCache.class.getName());
+        var cache = new BoundedValueCache<K, V>(maxSize, ttl);
+        var existing = caches.putIfAbsent(name, cache);
+        if (existing != null) {
+            return (BoundedValueCache<K, V>) existing;
+        }
+        var registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            FunctionCounter.builder("graphql.dataloader.cache.hits", cache, BoundedValueCache::hits).tag("loader", name).register(registry);
+            FunctionCounter.builder("graphql.dataloader.cache.misses", cache, BoundedValueCache::misses).tag("loader", name).register(registry);
+            Gauge.builder("graphql.dataloader.cache.hit.ratio", cache, BoundedValueCache::hitRatio).tag("loader", name).register(registry);
+            Gauge.builder("graphql.dataloader.cache.size", cache, BoundedValueCache::size).tag("loader", name).register(registry);
+        }
+        return cache;
+    }
+
+    // a failed future is a miss, the data loader then calls its batch loader
+    @Override
+    public synchronized CompletableFuture<V> get(K key) {
+        var entry = entries.get(key);
+        if (entry == null || entry.expiresAt() - System.nanoTime() < 0) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.increment();
+            return CompletableFuture.failedFuture(new IllegalStateException("Not cached: " + key));
+        }
+        hits.increment();
+        return CompletableFuture.completedFuture(entry.value());
+    }
+
+    @Override
+    public synchronized CompletableFuture<V> set(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        return CompletableFuture.completedFuture(value);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> delete(K key) {
+        entries.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> clear() {
+        entries.clear();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRatio() {
+        long total = hits() + misses();
+        return total == 0 ? 0 : (double) hits() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedValueCache{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", hitRatio=" + hitRatio() + "}";
+    }
+}
@@ -4,6 +4,7 @@ import com.example.demo.gql.types.*;
 import com.example.demo.service.PostService;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.SelectedField;
 import io.reactivex.rxjava3.core.BackpressureStrategy;
 import io.reactivex.rxjava3.observables.ConnectableObservable;
 import io.reactivex.rxjava3.subjects.ReplaySubject;
@@ -15,25 +16,60 @@ import org.dataloader.DataLoader;
 import org.reactivestreams.Publisher;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Slf4j
 public class DataFetchers {
     private final PostService posts;
 
+    // fetch only the selected fields, the author and comments in the same query when they are selected
     public DataFetcher<CompletionStage<List<Post>>> getAllPosts() {
-        return (DataFetchingEnvironment dfe) -> this.posts.getAllPosts().toCompletionStage();
+        return (DataFetchingEnvironment dfe) -> {
+            var fields = selectedFields(dfe);
+            return this.posts.getAllPosts(fields)
+                .onSuccess(result -> result.forEach(post -> prime(dfe, fields, post)))
+                .toCompletionStage();
+        };
     }
 
     public DataFetcher<CompletionStage<Post>> getPostById() {
         return (DataFetchingEnvironment dfe) -> {
             String postId = dfe.getArgument("postId");
-            return posts.getPostById(postId).toCompletionStage();
+            var fields = selectedFields(dfe);
+            return posts.getPostById(postId, fields)
+                .onSuccess(post -> prime(dfe, fields, post))
+                .toCompletionStage();
         };
     }
 
+    private static Set<String> selectedFields(DataFetchingEnvironment dfe) {
+        return dfe.getSelectionSet().getImmediateFields().stream()
+            .map(SelectedField::getName)
+            .collect(Collectors.toSet());
+    }
+
+    // the relations fetched with the post are primed in the data loaders, `author` and `comments` do not load them again
+    private static void prime(DataFetchingEnvironment dfe, Set<String> fields, Post post) {
+        if (fields.contains("author") && post.getAuthorId() != null) {
+            dfe.<String, Author>getDataLoader("authorsLoader").prime(post.getAuthorId(), post.getAuthor());
+        }
+        if (fields.contains("comments")) {
+            dfe.<String, List<Comment>>getDataLoader("commentsLoader").prime(post.getId(), post.getComments());
+        }
+    }
+
+
+    public DataFetcher<CompletionStage<Connection<Post>>> getPostsConnection() {
+        return (DataFetchingEnvironment dfe) -> {
+            int first = dfe.getArgumentOrDefault("first", 10);
+            String after = dfe.getArgument("after");
+            return this.posts.getPostsConnection(first, after).toCompletionStage();
+        };
+    }
 
     public DataFetcher<CompletionStage<UUID>> createPost() {
         return (DataFetchingEnvironment dfe) -> {
@@ -53,6 +89,23 @@ public class DataFetchers {
         };
     }
 
+    public DataFetcher<CompletionStage<Connection<Comment>>> commentsConnectionOfPost() {
+        return (DataFetchingEnvironment dfe) -> {
+            DataLoader<DataLoaders.CommentsPage, Connection<Comment>> dataLoader = dfe.getDataLoader("commentsConnectionLoader");
+            Post post = dfe.getSource();
+            int first = dfe.getArgumentOrDefault("first", 10);
+            return dataLoader.load(new DataLoaders.CommentsPage(post.getId(), first, dfe.getArgument("after")));
+        };
+    }
+
+    public DataFetcher<CompletionStage<List<Post>>> postsOfAuthor() {
+        return (DataFetchingEnvironment dfe) -> {
+            DataLoader<String, List<Post>> dataLoader = dfe.getDataLoader("postsByAuthorLoader");
+            Author author = dfe.getSource();
+            return dataLoader.load(author.getId());
+        };
+    }
+
     public DataFetcher<CompletionStage<Author>> authorOfPost() {
         return (DataFetchingEnvironment dfe) -> {
             DataLoader<String, Author> dataLoader = dfe.getDataLoader("authorsLoader");
@@ -68,6 +121,8 @@ public class DataFetchers {
             var jacksonMapper = DatabindCodec.mapper();
             var input = jacksonMapper.convertValue(commentInputArg, CommentInput.class);
             return this.posts.addComment(input)
+                // the comments of the post cached by the data loaders are stale
+                .onSuccess(id -> dfe.<String, List<Comment>>getDataLoader("commentsLoader").clear(input.getPostId()))
                 .onSuccess(id -> this.posts.getCommentById(id.toString()).onSuccess(c -> subject.onNext(c)))
                 .toCompletionStage();
         };
@@ -0,0 +1,149 @@
+package com.example.demo.gql;
+
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Apollo automatic persisted queries: a bounded LRU cache of the parsed and validated documents, keyed by the sha256
+ * hash of the query text.
+ * <p>
+ * A client sends the hash in the `extensions.persistedQuery.sha256Hash` member of the request, without the query. On
+ * a miss, the request fails with a `PersistedQueryNotFound` error and the client sends the hash again with the query,
+ * which is parsed, validated and cached. The GraphQL handler gives a request sending the hash only the
+ * {@link PersistedQuerySupport#PERSISTED_QUERY_MARKER} query, and the extensions of the request are passed to the
+ * execution input, the document is looked up by the hash of the extensions. A request without a hash is cached by the
+ * hash of its query too, so the repeated queries skip the parsing and validation anyway.
+ * <p>
+ * The hits and misses are reported as `graphql.persisted.queries.hits`/`misses`.
+ */
+public class PersistedQueries implements PreparsedDocumentProvider {
+
+    private final int maxSize;
+    private final Map<String, PreparsedDocumentEntry> documents;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private PersistedQueries(int maxSize) {
+        this.maxSize = maxSize;
+        this.documents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+                return size() > PersistedQueries.this.maxSize;
+            }
+        };
+    }
+
+    public static PersistedQueries create(int maxSize) {
+        var queries = new PersistedQueries(maxSize);
+        var registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            FunctionCounter.builder("graphql.persisted.queries.hits", queries, PersistedQueries::hits).register(registry);
+            FunctionCounter.builder("graphql.persisted.queries.misses", queries, PersistedQueries::misses).register(registry);
+            Gauge.builder("graphql.persisted.queries.size", queries, PersistedQueries::size).register(registry);
+        }
+        return queries;
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                     Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String query = executionInput.getQuery();
+        boolean hasQuery = query != null && !query.isBlank() && !query.equals(PersistedQuerySupport.PERSISTED_QUERY_MARKER);
+        String hash = requestedHash(executionInput);
+        if (hash == null && !hasQuery) {
+            return CompletableFuture.completedFuture(parseAndValidateFunction.apply(executionInput));
+        }
+
+        String queryHash = hasQuery ? sha256(query) : hash;
+        if (hash != null && !hash.equalsIgnoreCase(queryHash)) {
+            return CompletableFuture.completedFuture(error("PersistedQueryIdInvalid", "PERSISTED_QUERY_ID_INVALID"));
+        }
+
+        var cached = get(queryHash);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        misses.increment();
+        if (!hasQuery) {
+            // the client sends the query along with the hash again
+            return CompletableFuture.completedFuture(error("PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND"));
+        }
+
+        var entry = parseAndValidateFunction.apply(executionInput);
+        // the invalid queries are not cached, they fail the same way every time anyway
+        if (!entry.hasErrors()) {
+            put(queryHash, entry);
+        }
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    // the `extensions.persistedQuery.sha256Hash` of the request, or null
+    private static String requestedHash(ExecutionInput executionInput) {
+        var extensions = executionInput.getExtensions();
+        if (extensions != null
+            && extensions.get("persistedQuery") instanceof Map<?, ?> persistedQuery
+            && persistedQuery.get("sha256Hash") instanceof String hash) {
+            return hash;
+        }
+        return null;
+    }
+
+    private static PreparsedDocumentEntry error(String message, String code) {
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+            .message(message)
+            .extensions(Map.of("code", code))
+            .build());
+    }
+
+    static String sha256(String query) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized PreparsedDocumentEntry get(String hash) {
+        return documents.get(hash);
+    }
+
+    private synchronized void put(String hash, PreparsedDocumentEntry entry) {
+        documents.put(hash, entry);
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PersistedQueries{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * An opaque keyset cursor pointing at the last row of a page, ordered by {@code (created_at, id)}.
+ */
+public record Cursor(LocalDateTime createdAt, UUID id) {
+
+    public Cursor {
+        Objects.requireNonNull(createdAt, "createdAt must not be null");
+        Objects.requireNonNull(id, "id must not be null");
+    }
+
+    public String encode() {
+        var raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null for no cursor, i.e. the first page
+    public static Cursor decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            var parts = raw.split(",", 2);
+            return new Cursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+}
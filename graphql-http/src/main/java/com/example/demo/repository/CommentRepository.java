@@ -1,6 +1,7 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.CommentEntity;
+import com.example.demo.model.Cursor;
 import io.vertx.core.Future;
 import io.vertx.sqlclient.*;
 import lombok.RequiredArgsConstructor;
@@ -20,10 +21,17 @@ public class CommentRepository {
         row.getUUID("post_id")
     );
 
-    private final Pool client;
+    // the comments of every post numbered in order, the first ones of every post only
+    private static final String PAGE_SQL = "SELECT id, content, created_at, post_id FROM (" +
+        "SELECT c.*, row_number() OVER (PARTITION BY c.post_id ORDER BY c.created_at, c.id) AS rn " +
+        "FROM comments c WHERE c.post_id = any($1)%s) ranked " +
+        "WHERE rn <= $2 ORDER BY post_id, rn";
+
+    // the reads go to the replica when there is one, see `PoolRouter`
+    private final PoolRouter pools;
 
     public Future<List<CommentEntity>> findAll() {
-        return client.query("SELECT * FROM comments ORDER BY created_at DESC ")
+        return pools.read().query("SELECT * FROM comments ORDER BY created_at DESC ")
             .execute()
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
@@ -33,7 +41,7 @@ public class CommentRepository {
 
     public Future<CommentEntity> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
-        return client.preparedQuery("SELECT * FROM comments WHERE id=$1").execute(Tuple.of(id))
+        return pools.read().preparedQuery("SELECT * FROM comments WHERE id=$1").execute(Tuple.of(id))
             .map(RowSet::iterator)
             .map(iterator -> {
                 if (iterator.hasNext()) return MAPPER.apply(iterator.next());
@@ -42,21 +50,37 @@ public class CommentRepository {
     }
 
     public Future<Integer> deleteAll() {
-        return client.query("DELETE FROM comments").execute()
+        return pools.write().query("DELETE FROM comments").execute()
             .map(SqlResult::rowCount);
     }
 
 
     public Future<List<CommentEntity>> findByPostIdIn(List<UUID> uuids) {
-        return client.preparedQuery("SELECT * FROM comments WHERE post_id = any($1)").execute(Tuple.of(uuids.toArray(new UUID[0])))
+        return pools.read().preparedQuery("SELECT * FROM comments WHERE post_id = any($1)").execute(Tuple.of(uuids.toArray(new UUID[0])))
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
                 .toList()
             );
     }
 
+    /**
+     * A page of the comments of every post after the cursor, the oldest first. The comments of every post are numbered by
+     * a window function, so at most {@code limit} comments of a post are read, however many it has.
+     */
+    public Future<List<CommentEntity>> findPageByPostIdIn(List<UUID> uuids, Cursor after, int limit) {
+        var postIds = uuids.toArray(new UUID[0]);
+        var query = after == null
+            ? pools.read().preparedQuery(PAGE_SQL.formatted("")).execute(Tuple.of(postIds, limit))
+            : pools.read().preparedQuery(PAGE_SQL.formatted(" AND (c.created_at, c.id) > ($3, $4)"))
+                .execute(Tuple.of(postIds, limit, after.createdAt(), after.id()));
+        return query.map(rs -> StreamSupport.stream(rs.spliterator(), false)
+            .map(MAPPER)
+            .toList()
+        );
+    }
+
     public Future<List<CommentEntity>> findByPostId(UUID id) {
-        return client.preparedQuery("SELECT * FROM comments WHERE post_id=$1").execute(Tuple.of(id))
+        return pools.read().preparedQuery("SELECT * FROM comments WHERE post_id=$1").execute(Tuple.of(id))
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
                 .toList()
@@ -64,7 +88,7 @@ public class CommentRepository {
     }
 
     public Future<UUID> create(String content, UUID postId) {
-        return client.preparedQuery("INSERT INTO comments(content, post_id) VALUES ($1, $2) RETURNING (id)")
+        return pools.write().preparedQuery("INSERT INTO comments(content, post_id) VALUES ($1, $2) RETURNING (id)")
             .execute(Tuple.of(content, postId))
             .map(rs -> rs.iterator().next().getUUID("id"));
     }
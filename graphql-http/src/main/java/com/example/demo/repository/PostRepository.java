@@ -1,15 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.model.AuthorEntity;
+import com.example.demo.model.CommentEntity;
+import com.example.demo.model.Cursor;
+import com.example.demo.model.PostAggregate;
 import com.example.demo.model.PostEntity;
 import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
 import io.vertx.sqlclient.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 @RequiredArgsConstructor
@@ -25,11 +34,28 @@ public class PostRepository {
             row.getUUID("author_id")
         );
 
+    // the comments aggregated by `json_agg`
+    private static final Function<JsonObject, CommentEntity> COMMENT_MAPPER = (json) ->
+        new CommentEntity(
+            UUID.fromString(json.getString("id")),
+            json.getString("content"),
+            LocalDateTime.parse(json.getString("created_at")),
+            UUID.fromString(json.getString("post_id"))
+        );
+
+    // the columns which can be selected by `findAll(Set, boolean, boolean)`
+    public static final Set<String> COLUMNS = Set.of("id", "title", "content", "status", "created_at", "author_id");
+
+    private static final String AUTHOR_COLUMNS = "a.name AS author_name, a.email AS author_email, a.created_at AS author_created_at";
+    private static final String COMMENTS_COLUMN = "(SELECT coalesce(json_agg(json_build_object('id', c.id, 'content', c.content, " +
+        "'created_at', c.created_at, 'post_id', c.post_id) ORDER BY c.created_at), '[]'::json) " +
+        "FROM comments c WHERE c.post_id = p.id) AS comments";
 
-    private final Pool client;
+    // the reads go to the replica when there is one, see `PoolRouter`
+    private final PoolRouter pools;
 
     public Future<List<PostEntity>> findAll() {
-        return client.query("SELECT * FROM posts ORDER BY created_at DESC ")
+        return pools.read().query("SELECT * FROM posts ORDER BY created_at DESC ")
             .execute()
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
@@ -40,7 +66,7 @@ public class PostRepository {
 
     public Future<PostEntity> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
-        return client.preparedQuery("SELECT * FROM posts WHERE id=$1").execute(Tuple.of(id))
+        return pools.read().preparedQuery("SELECT * FROM posts WHERE id=$1").execute(Tuple.of(id))
             .map(RowSet::iterator)
             .map(iterator -> {
                 if (iterator.hasNext()) return MAPPER.apply(iterator.next());
@@ -48,9 +74,105 @@ public class PostRepository {
             });
     }
 
+    /**
+     * Fetch the given columns of the posts, and their author and comments in the same query: the author is joined and
+     * the comments of every post are aggregated into a json array. The id is always selected, and the author id when the
+     * author is fetched.
+     */
+    public Future<List<PostAggregate>> findAll(Set<String> columns, boolean withAuthor, boolean withComments) {
+        return pools.read().query(joinedQuery(columns, withAuthor, withComments) + " ORDER BY p.created_at DESC")
+            .execute()
+            .map(rs -> StreamSupport.stream(rs.spliterator(), false)
+                .map(row -> aggregate(row, withAuthor, withComments))
+                .toList()
+            );
+    }
+
+    public Future<PostAggregate> findById(UUID id, Set<String> columns, boolean withAuthor, boolean withComments) {
+        Objects.requireNonNull(id, "id can not be null");
+        return pools.read().preparedQuery(joinedQuery(columns, withAuthor, withComments) + " WHERE p.id=$1").execute(Tuple.of(id))
+            .map(RowSet::iterator)
+            .map(iterator -> {
+                if (iterator.hasNext()) return aggregate(iterator.next(), withAuthor, withComments);
+                throw new PostNotFoundException(id);
+            });
+    }
+
+    private static String joinedQuery(Set<String> columns, boolean withAuthor, boolean withComments) {
+        var selected = new LinkedHashSet<String>();
+        selected.add("id");
+        if (withAuthor) {
+            selected.add("author_id");
+        }
+        for (var column : columns) {
+            if (!COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Unknown column of posts: " + column);
+            }
+            selected.add(column);
+        }
+
+        var sql = new StringBuilder("SELECT ")
+            .append(selected.stream().map(column -> "p." + column).collect(Collectors.joining(", ")));
+        if (withAuthor) {
+            sql.append(", ").append(AUTHOR_COLUMNS);
+        }
+        if (withComments) {
+            sql.append(", ").append(COMMENTS_COLUMN);
+        }
+        sql.append(" FROM posts p");
+        if (withAuthor) {
+            sql.append(" LEFT JOIN users a ON a.id = p.author_id");
+        }
+        return sql.toString();
+    }
+
+    private static PostAggregate aggregate(Row row, boolean withAuthor, boolean withComments) {
+        var post = new PostEntity(
+            row.getUUID("id"),
+            column(row, "title", row::getString),
+            column(row, "content", row::getString),
+            column(row, "status", row::getString),
+            column(row, "created_at", row::getLocalDateTime),
+            column(row, "author_id", row::getUUID)
+        );
+        AuthorEntity author = withAuthor && post.authorId() != null
+            ? new AuthorEntity(post.authorId(), row.getString("author_name"), row.getString("author_email"), row.getLocalDateTime("author_created_at"))
+            : null;
+        List<CommentEntity> comments = withComments
+            ? row.getJsonArray("comments").stream().map(json -> COMMENT_MAPPER.apply((JsonObject) json)).toList()
+            : null;
+        return new PostAggregate(post, author, comments);
+    }
+
+    // null when the column is not selected
+    private static <T> T column(Row row, String name, Function<String, T> getter) {
+        return row.getColumnIndex(name) == -1 ? null : getter.apply(name);
+    }
+
+    // a page of the posts after the cursor, the newest first
+    public Future<List<PostEntity>> findPage(Cursor after, int limit) {
+        var query = after == null
+            ? pools.read().preparedQuery("SELECT * FROM posts ORDER BY created_at DESC, id DESC LIMIT $1").execute(Tuple.of(limit))
+            : pools.read().preparedQuery("SELECT * FROM posts WHERE (created_at, id) < ($1, $2) ORDER BY created_at DESC, id DESC LIMIT $3")
+                .execute(Tuple.of(after.createdAt(), after.id(), limit));
+        return query.map(rs -> StreamSupport.stream(rs.spliterator(), false)
+            .map(MAPPER)
+            .toList()
+        );
+    }
+
     public Future<List<PostEntity>> findByAuthorId(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
-        return client.preparedQuery("SELECT * FROM posts WHERE author_id=$1").execute(Tuple.of(id))
+        return pools.read().preparedQuery("SELECT * FROM posts WHERE author_id=$1").execute(Tuple.of(id))
+            .map(rs -> StreamSupport.stream(rs.spliterator(), false)
+                .map(MAPPER)
+                .toList()
+            );
+    }
+
+    public Future<List<PostEntity>> findByAuthorIdIn(List<UUID> uuids) {
+        return pools.read().preparedQuery("SELECT * FROM posts WHERE author_id = any($1) ORDER BY created_at DESC")
+            .execute(Tuple.of(uuids.toArray(new UUID[0])))
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
                 .toList()
@@ -58,7 +180,7 @@ public class PostRepository {
     }
 
     public Future<UUID> create(String title, String content, String status, UUID authorId) {
-        return client.preparedQuery("INSERT INTO posts(title, content, status, author_id) VALUES ($1, $2, $3, $4) RETURNING (id)")
+        return pools.write().preparedQuery("INSERT INTO posts(title, content, status, author_id) VALUES ($1, $2, $3, $4) RETURNING (id)")
             .execute(Tuple.of(title, content, status, authorId))
             .map(rs -> rs.iterator().next().getUUID("id"));
     }
@@ -68,25 +190,25 @@ public class PostRepository {
             .map(d -> Tuple.of(d.title(), d.content()))
             .toList();
 
-        return client.preparedQuery("INSERT INTO posts (title, content) VALUES ($1, $2)")
+        return pools.write().preparedQuery("INSERT INTO posts (title, content) VALUES ($1, $2)")
             .executeBatch(tuples)
             .map(SqlResult::rowCount);
     }
 
     public Future<Integer> update(PostEntity data) {
-        return client.preparedQuery("UPDATE posts SET title=$1, content=$2 WHERE id=$3")
+        return pools.write().preparedQuery("UPDATE posts SET title=$1, content=$2 WHERE id=$3")
             .execute(Tuple.of(data.title(), data.content(), data.id()))
             .map(SqlResult::rowCount);
     }
 
     public Future<Integer> deleteAll() {
-        return client.query("DELETE FROM posts").execute()
+        return pools.write().query("DELETE FROM posts").execute()
             .map(SqlResult::rowCount);
     }
 
     public Future<Integer> deleteById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
-        return client.preparedQuery("DELETE FROM posts WHERE id=$1").execute(Tuple.of(id))
+        return pools.write().preparedQuery("DELETE FROM posts WHERE id=$1").execute(Tuple.of(id))
             .map(SqlResult::rowCount);
     }
 
@@ -13,7 +13,8 @@ import java.util.function.Function;
 
 @RequiredArgsConstructor
 public class AuthorService {
-    private static final Function<AuthorEntity, Author> MAPPER = a -> Author.builder()
+    // package private, used by PostService
+    static final Function<AuthorEntity, Author> MAPPER = a -> Author.builder()
         .id(a.id().toString())
         .name(a.name())
         .email(a.email())
@@ -2,6 +2,8 @@ package com.example.demo.service;
 
 import com.example.demo.gql.types.*;
 import com.example.demo.model.CommentEntity;
+import com.example.demo.model.Cursor;
+import com.example.demo.model.PostAggregate;
 import com.example.demo.model.PostEntity;
 import com.example.demo.repository.AuthorRepository;
 import com.example.demo.repository.CommentRepository;
@@ -10,19 +12,23 @@ import io.vertx.core.Future;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.Validate;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class PostService {
 
-    private static final Function<PostEntity, Post> POST_MAPPER = p -> Post.builder()
+    // package private, used by the benchmarks module
+    static final Function<PostEntity, Post> POST_MAPPER = p -> Post.builder()
         .id(p.id().toString())
         .title(p.title())
         .content(p.content())
-        .status(PostStatus.valueOf(p.status()))
+        .status(p.status() != null ? PostStatus.valueOf(p.status()) : null)
         .createdAt(p.createdAt())
         .authorId(p.authorId() != null ? p.authorId().toString() : null)
         .build();
@@ -32,6 +38,30 @@ public class PostService {
         .createdAt(c.createdAt())
         .postId(c.postId().toString())
         .build();
+    // the relations fetched with the post are set on it
+    private static final Function<PostAggregate, Post> AGGREGATE_MAPPER = a -> {
+        var post = POST_MAPPER.apply(a.post());
+        if (a.author() != null) {
+            post.setAuthor(AuthorService.MAPPER.apply(a.author()));
+        }
+        if (a.comments() != null) {
+            post.setComments(a.comments().stream().map(COMMENT_MAPPER).toList());
+        }
+        return post;
+    };
+
+    // the columns of the scalar fields of `Post`
+    private static final Map<String, String> COLUMNS = Map.of(
+        "id", "id",
+        "title", "title",
+        "content", "content",
+        "status", "status",
+        "createdAt", "created_at",
+        "authorId", "author_id"
+    );
+
+    // the max `first` of a page of posts or comments
+    public static final int MAX_PAGE_SIZE = 100;
 
     final PostRepository posts;
     final CommentRepository comments;
@@ -52,6 +82,74 @@ public class PostService {
         return postEntity.map(POST_MAPPER);
     }
 
+    /**
+     * Fetch only the given fields of the posts. The `author` and `comments` are fetched in the same query and set on
+     * the posts, see `PostRepository.findAll(Set, boolean, boolean)`.
+     */
+    public Future<List<Post>> getAllPosts(Set<String> fields) {
+        return this.posts.findAll(columnsOf(fields), fields.contains("author"), fields.contains("comments"))
+            .map(
+                posts -> posts.stream()
+                    .map(AGGREGATE_MAPPER)
+                    .toList()
+            );
+    }
+
+    public Future<Post> getPostById(String id, Set<String> fields) {
+        return this.posts.findById(UUID.fromString(id), columnsOf(fields), fields.contains("author"), fields.contains("comments"))
+            .map(AGGREGATE_MAPPER);
+    }
+
+    private static Set<String> columnsOf(Set<String> fields) {
+        return fields.stream()
+            .filter(COLUMNS::containsKey)
+            .map(COLUMNS::get)
+            .collect(Collectors.toSet());
+    }
+
+    // a page of the posts after the cursor, the newest first
+    public Future<Connection<Post>> getPostsConnection(int first, String after) {
+        Validate.inclusiveBetween(1, MAX_PAGE_SIZE, first, "first must be between 1 and " + MAX_PAGE_SIZE);
+        return this.posts.findPage(Cursor.decode(after), first + 1)
+            .map(posts -> connection(posts.stream().map(POST_MAPPER).toList(), first, PostService::postCursor));
+    }
+
+    // a page of the comments of every post after the cursor, the oldest first
+    public Future<Map<String, Connection<Comment>>> getCommentsConnectionsByPostIdIn(Set<String> ids, int first, String after) {
+        Validate.inclusiveBetween(1, MAX_PAGE_SIZE, first, "first must be between 1 and " + MAX_PAGE_SIZE);
+        var uuids = ids.stream().map(UUID::fromString).toList();
+        return this.comments.findPageByPostIdIn(uuids, Cursor.decode(after), first + 1)
+            .map(comments -> {
+                Map<String, List<Comment>> commentsByPost = comments.stream()
+                    .map(COMMENT_MAPPER)
+                    .collect(Collectors.groupingBy(Comment::getPostId));
+                Map<String, Connection<Comment>> connections = new HashMap<>();
+                ids.forEach(id -> connections.put(id, connection(commentsByPost.getOrDefault(id, List.of()), first, PostService::commentCursor)));
+                return connections;
+            });
+    }
+
+    // one more node than the page is fetched, telling whether there is a next page
+    private static <T> Connection<T> connection(List<T> nodes, int first, Function<T, Cursor> cursorOf) {
+        var page = nodes.size() > first ? nodes.subList(0, first) : nodes;
+        List<Edge<T>> edges = page.stream()
+            .map(node -> Edge.<T>builder().cursor(cursorOf.apply(node).encode()).node(node).build())
+            .toList();
+        var pageInfo = PageInfo.builder()
+            .hasNextPage(nodes.size() > first)
+            .endCursor(edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor())
+            .build();
+        return Connection.<T>builder().edges(edges).pageInfo(pageInfo).build();
+    }
+
+    private static Cursor postCursor(Post post) {
+        return new Cursor(post.getCreatedAt(), UUID.fromString(post.getId()));
+    }
+
+    private static Cursor commentCursor(Comment comment) {
+        return new Cursor(comment.getCreatedAt(), UUID.fromString(comment.getId()));
+    }
+
     Future<List<Post>> getPostsByAuthorId(String id) {
         return this.posts.findByAuthorId(UUID.fromString(id))
             .map(
@@ -61,6 +159,16 @@ public class PostService {
             );
     }
 
+    // the posts of every author, grouped in one pass
+    public Future<Map<String, List<Post>>> getPostsByAuthorIdIn(Set<String> ids) {
+        var uuids = ids.stream().map(UUID::fromString).toList();
+        return this.posts.findByAuthorIdIn(uuids)
+            .map(posts -> posts.stream()
+                .map(POST_MAPPER)
+                .collect(Collectors.groupingBy(Post::getAuthorId))
+            );
+    }
+
     public Future<UUID> createPost(CreatePostInput postInput) {
         Validate.notNull(postInput, "CreatePostInput can not be null");
         Validate.notEmpty(postInput.getTitle(), "CreatePostInput.title can not be empty");
@@ -1,12 +1,15 @@
 package com.example.demo;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpClientResponse;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +17,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -71,6 +78,216 @@ public class TestMainVerticle {
             );
     }
 
+    @Test
+    void getAllPostsWithAuthorAndComments(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        // the author and the comments are fetched with the posts, and primed in the data loaders
+        var query = """
+            query {
+                allPosts{
+                    title
+                    author{ id name }
+                    comments{ id content }
+                }
+            }""";
+        client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(Map.of("query", query)))
+                .flatMap(HttpClientResponse::body)
+            )
+            .onComplete(
+                testContext.succeeding(buffer ->
+                    testContext.verify(() -> {
+                            log.info("buf: {}", buffer.toString());
+                            var json = buffer.toJsonObject();
+                            assertThat(json.getJsonArray("errors")).isNull();
+                            JsonArray array = json.getJsonObject("data").getJsonArray("allPosts");
+                            assertThat(array.size()).isGreaterThan(0);
+                            for (int i = 0; i < array.size(); i++) {
+                                var post = array.getJsonObject(i);
+                                assertThat(post.getString("title")).isNotNull();
+                                assertThat(post.getJsonArray("comments")).isNotNull();
+                            }
+                            assertThat(array.getJsonObject(array.size() - 1).getJsonObject("author").getString("name")).isEqualTo("John Doe");
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void persistedQuery(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        var query = "query { allPosts { id title } }";
+        var hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8)));
+        var extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+        Function<Map<String, Object>, Future<JsonObject>> send = body -> client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(body))
+                .flatMap(HttpClientResponse::body)
+            )
+            .map(Buffer::toJsonObject);
+
+        // the hash is unknown, then registered with the query, then enough
+        send.apply(Map.of("extensions", extensions))
+            .flatMap(notFound -> {
+                log.info("not found: {}", notFound);
+                assertThat(notFound.getJsonArray("errors").getJsonObject(0).getString("message")).isEqualTo("PersistedQueryNotFound");
+                return send.apply(Map.of("query", query, "extensions", extensions));
+            })
+            .flatMap(registered -> {
+                assertThat(registered.getJsonObject("data").getJsonArray("allPosts")).isNotEmpty();
+                return send.apply(Map.of("extensions", extensions));
+            })
+            .onComplete(
+                testContext.succeeding(hit ->
+                    testContext.verify(() -> {
+                            log.info("hit: {}", hit);
+                            assertThat(hit.getJsonArray("errors")).isNull();
+                            assertThat(hit.getJsonObject("data").getJsonArray("allPosts")).isNotEmpty();
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void rejectTooCostlyQuery(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        // every post of every author of every post..., rejected before it is executed
+        var query = """
+            query {
+                allPosts{
+                    author{
+                        posts{
+                            comments{ id content }
+                        }
+                    }
+                }
+            }""";
+        client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(Map.of("query", query)))
+                .flatMap(HttpClientResponse::body)
+            )
+            .onComplete(
+                testContext.succeeding(buffer ->
+                    testContext.verify(() -> {
+                            log.info("buf: {}", buffer.toString());
+                            var json = buffer.toJsonObject();
+                            assertThat(json.getValue("data")).isNull();
+                            assertThat(json.getJsonArray("errors").getJsonObject(0).getString("message")).contains("maximum query cost exceeded");
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void rejectTooLargePages(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        // the page sizes multiply the cost, 100 comments of 100 posts are rejected before they are fetched
+        var query = """
+            query {
+                postsConnection(first: 100){
+                    edges{ node{ id commentsConnection(first: 100){ edges{ node{ id content } } } } }
+                }
+            }""";
+        client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(Map.of("query", query)))
+                .flatMap(HttpClientResponse::body)
+            )
+            .onComplete(
+                testContext.succeeding(buffer ->
+                    testContext.verify(() -> {
+                            log.info("buf: {}", buffer.toString());
+                            var json = buffer.toJsonObject();
+                            assertThat(json.getValue("data")).isNull();
+                            assertThat(json.getJsonArray("errors").getJsonObject(0).getString("message")).contains("maximum query cost exceeded");
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void postsConnection(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        var query = """
+            query page($after:String) {
+                postsConnection(first: 1, after: $after){
+                    edges{
+                        cursor
+                        node{ id commentsConnection(first: 2){ edges{ node{ id } } pageInfo{ hasNextPage } } }
+                    }
+                    pageInfo{ hasNextPage endCursor }
+                }
+            }""";
+        Function<String, Future<JsonObject>> page = after -> client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(after == null ? Map.of("query", query) : Map.of("query", query, "variables", Map.of("after", after))))
+                .flatMap(HttpClientResponse::body)
+            )
+            .map(buffer -> buffer.toJsonObject().getJsonObject("data").getJsonObject("postsConnection"));
+
+        page.apply(null)
+            .flatMap(first -> {
+                log.info("first page: {}", first);
+                assertThat(first.getJsonArray("edges").size()).isEqualTo(1);
+                assertThat(first.getJsonObject("pageInfo").getBoolean("hasNextPage")).isTrue();
+                var firstId = first.getJsonArray("edges").getJsonObject(0).getJsonObject("node").getString("id");
+                return page.apply(first.getJsonObject("pageInfo").getString("endCursor"))
+                    .map(second -> {
+                        log.info("second page: {}", second);
+                        return second.getJsonArray("edges").getJsonObject(0).getJsonObject("node").getString("id").equals(firstId);
+                    });
+            })
+            .onComplete(
+                testContext.succeeding(samePost ->
+                    testContext.verify(() -> {
+                            assertThat(samePost).isFalse();
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void getPostsOfAuthor(Vertx vertx, VertxTestContext testContext) throws Throwable {
+        var query = """
+            query {
+                allPosts{
+                    id
+                    author{ name posts{ id } }
+                }
+            }""";
+        client.request(HttpMethod.POST, "/graphql")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .putHeader("Accept", "application/json")
+                .send(Json.encode(Map.of("query", query)))
+                .flatMap(HttpClientResponse::body)
+            )
+            .onComplete(
+                testContext.succeeding(buffer ->
+                    testContext.verify(() -> {
+                            log.info("buf: {}", buffer.toString());
+                            JsonArray array = buffer.toJsonObject().getJsonObject("data").getJsonArray("allPosts");
+                            var post = array.getJsonObject(array.size() - 1);
+                            var postsOfAuthor = post.getJsonObject("author").getJsonArray("posts");
+                            assertThat(postsOfAuthor.stream().map(p -> ((JsonObject) p).getString("id"))).contains(post.getString("id"));
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
     @Test
     void createPost(Vertx vertx, VertxTestContext testContext) throws Throwable {
         String TITLE = "My post created by Vertx HttpClient";
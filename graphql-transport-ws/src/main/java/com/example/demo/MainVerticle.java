@@ -1,5 +1,7 @@
 package com.example.demo;
 
+import com.example.demo.gql.CommentBroker;
+import com.example.demo.gql.CostAnalysisInstrumentation;
 import com.example.demo.gql.CustomDataFetchingExceptionHandler;
 import com.example.demo.gql.DataFetchers;
 import com.example.demo.gql.DataLoaders;
@@ -7,6 +9,7 @@ import com.example.demo.gql.directives.UpperCaseDirectiveWiring;
 import com.example.demo.gql.scalars.Scalars;
 import com.example.demo.repository.AuthorRepository;
 import com.example.demo.repository.CommentRepository;
+import com.example.demo.repository.PoolRouter;
 import com.example.demo.repository.PostRepository;
 import com.example.demo.service.AuthorService;
 import com.example.demo.service.PostService;
@@ -34,6 +37,7 @@ import io.vertx.ext.web.handler.graphql.GraphiQLHandlerOptions;
 import io.vertx.ext.web.handler.graphql.UploadScalar;
 import io.vertx.ext.web.handler.graphql.ws.GraphQLWSHandler;
 import io.vertx.ext.web.handler.graphql.ws.GraphQLWSOptions;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.sqlclient.Pool;
@@ -47,6 +51,8 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.LogManager;
 
@@ -57,6 +63,8 @@ import static io.vertx.core.http.HttpMethod.POST;
 @Slf4j
 public class MainVerticle extends VerticleBase {
 
+    private CommentBroker broker;
+
     static {
         log.info("Customizing the built-in jackson ObjectMapper...");
         var objectMapper = DatabindCodec.mapper();
@@ -74,22 +82,28 @@ public class MainVerticle extends VerticleBase {
         //setupLogging();
 
         //Create a PgPool instance
-        var pgPool = pgPool();
+        var pgPool = pgPool(config().getJsonObject("pg", new JsonObject()));
+
+        // the reads go to a replica when `replica` is configured, see `PoolRouter`
+        var pools = pools(pgPool);
 
         // instantiate repos
-        var postRepository = new PostRepository(pgPool);
-        var commentRepository = new CommentRepository(pgPool);
-        var authorRepository = new AuthorRepository(pgPool);
+        var postRepository = new PostRepository(pools);
+        var commentRepository = new CommentRepository(pools);
+        var authorRepository = new AuthorRepository(pools);
 
         //assemble PostService
         var postService = new PostService(postRepository, commentRepository, authorRepository);
         var authorService = new AuthorService(authorRepository);
 
-        // assemble DataLoaders
-        var dataLoaders = new DataLoaders(authorService, postService);
+        // assemble DataLoaders, with a cache shared by the executions when `dataLoaderCache.maxSize` is configured
+        var dataLoaders = dataLoaders(authorService, postService);
+
+        // the `commentAdded` subscriptions, shared with the other instances according to `subscriptions.transport`
+        broker = commentBroker();
 
         //assemble DataFetcher
-        var dataFetchers = new DataFetchers(postService);
+        var dataFetchers = new DataFetchers(postService, broker);
 
         // setup GraphQL
         GraphQL graphQL = setupGraphQLJava(dataFetchers);
@@ -101,9 +115,14 @@ public class MainVerticle extends VerticleBase {
         HttpServerOptions httpServerOptions = new HttpServerOptions()
                 .addWebSocketSubProtocol("graphql-transport-ws");
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx);
+
         // Initializing the sample data, then start the HTTP server
         var initializer = new DataInitializer(postRepository, commentRepository, authorRepository);
         return initializer.run()
+                .compose(v -> broker.install(pgPool))
+                .compose(v -> broker.start())
                 .compose(v -> vertx.createHttpServer(httpServerOptions)
                         .requestHandler(router)
                         .listen(8080)
@@ -113,6 +132,11 @@ public class MainVerticle extends VerticleBase {
                 );
     }
 
+    @Override
+    public Future<?> stop() {
+        return broker == null ? Future.succeededFuture() : broker.close();
+    }
+
     //create routes
     private Router setupRoutes(GraphQL graphQL, DataLoaders dataLoaders) {
 
@@ -146,6 +170,9 @@ public class MainVerticle extends VerticleBase {
 
         router.route("/graphql").handler(graphQLWSHandler);
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
         // register `/graphiql` endpoint for the GraphiQL UI
         GraphiQLHandlerOptions graphiqlOptions = new GraphiQLHandlerOptions().setEnabled(true);
         GraphiQLHandler graphiQLHandler = GraphiQLHandler.create(vertx, graphiqlOptions);
@@ -156,10 +183,25 @@ public class MainVerticle extends VerticleBase {
         return router;
     }
 
+    private DataLoaders dataLoaders(AuthorService authorService, PostService postService) {
+        var dataLoaders = new DataLoaders(authorService, postService);
+        var cacheConfig = config().getJsonObject("dataLoaderCache", new JsonObject());
+        int maxSize = cacheConfig.getInteger("maxSize", 0);
+        if (maxSize > 0) {
+            long ttl = cacheConfig.getLong("ttlSeconds", 30L);
+            log.info("data loader cache: maxSize={}, ttlSeconds={}", maxSize, ttl);
+            dataLoaders.sharedCache(vertx, maxSize, Duration.ofSeconds(ttl));
+        }
+        return dataLoaders;
+    }
+
+    // a registry per execution, the loaders and their caches are dropped with it
     private DataLoaderRegistry buildDataLoaderRegistry(DataLoaders dataLoaders) {
         DataLoaderRegistry registry = new DataLoaderRegistry();
         registry.register("commentsLoader", dataLoaders.commentsLoader());
         registry.register("authorsLoader", dataLoaders.authorsLoader());
+        registry.register("commentsConnectionLoader", dataLoaders.commentsConnectionLoader());
+        registry.register("postsByAuthorLoader", dataLoaders.postsByAuthorLoader());
         return registry;
     }
 
@@ -177,10 +219,19 @@ public class MainVerticle extends VerticleBase {
                 //.queryExecutionStrategy()
                 //.mutationExecutionStrategy()
                 //.subscriptionExecutionStrategy()
-                //.instrumentation()
+                .instrumentation(costAnalysis())
                 .build();
     }
 
+    // reject the operations too deep or too costly, see `CostAnalysisInstrumentation`
+    private CostAnalysisInstrumentation costAnalysis() {
+        var costConfig = config().getJsonObject("costAnalysis", new JsonObject());
+        int maxDepth = costConfig.getInteger("maxDepth", 10);
+        int maxCost = costConfig.getInteger("maxCost", 1000);
+        log.info("cost analysis: maxDepth={}, maxCost={}", maxDepth, maxCost);
+        return CostAnalysisInstrumentation.create(maxDepth, maxCost);
+    }
+
     private GraphQLSchema buildGraphQLSchema(TypeDefinitionRegistry typeDefinitionRegistry, RuntimeWiring runtimeWiring) {
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         GraphQLSchema graphQLSchema = schemaGenerator.makeExecutableSchema(typeDefinitionRegistry, runtimeWiring);
@@ -228,7 +279,8 @@ public class MainVerticle extends VerticleBase {
         return GraphQLCodeRegistry.newCodeRegistry()
                 .dataFetchers("Query", Map.of(
                         "postById", dataFetchers.getPostById(),
-                        "allPosts", dataFetchers.getAllPosts()
+                        "allPosts", dataFetchers.getAllPosts(),
+                        "postsConnection", dataFetchers.getPostsConnection()
                 ))
                 .dataFetchers("Mutation", Map.of(
                         "createPost", dataFetchers.createPost(),
@@ -240,7 +292,11 @@ public class MainVerticle extends VerticleBase {
                 ))
                 .dataFetchers("Post", Map.of(
                         "author", dataFetchers.authorOfPost(),
-                        "comments", dataFetchers.commentsOfPost()
+                        "comments", dataFetchers.commentsOfPost(),
+                        "commentsConnection", dataFetchers.commentsConnectionOfPost()
+                ))
+                .dataFetchers("Author", Map.of(
+                        "posts", dataFetchers.postsOfAuthor()
                 ))
                 //.typeResolver()
                 //.fieldVisibility()
@@ -248,16 +304,55 @@ public class MainVerticle extends VerticleBase {
                 .build();
     }
 
-    private Pool pgPool() {
-        PgConnectOptions connectOptions = new PgConnectOptions()
-                .setPort(5432)
-                .setHost("localhost")
-                .setDatabase("blogdb")
-                .setUser("user")
-                .setPassword("password");
+    /**
+     * The `subscriptions` object of the deployment config, e.g.
+     * `{"subscriptions": {"transport": "notify", "bufferSize": 64, "overflow": "disconnect"}}`. The transport is one
+     * of `local`, `event_bus`(the default) and `notify`, whose trigger is installed on start, the overflow is one of
+     * `drop_oldest`(the default) and `disconnect`.
+     */
+    private CommentBroker commentBroker() {
+        var subscriptionsConfig = config().getJsonObject("subscriptions", new JsonObject());
+        var transport = CommentBroker.Transport.valueOf(subscriptionsConfig.getString("transport", "event_bus").toUpperCase(Locale.ROOT));
+        var overflow = CommentBroker.Overflow.valueOf(subscriptionsConfig.getString("overflow", "drop_oldest").toUpperCase(Locale.ROOT));
+        int bufferSize = subscriptionsConfig.getInteger("bufferSize", 64);
+        log.info("subscriptions: transport={}, bufferSize={}, overflow={}", transport, bufferSize, overflow);
+        return switch (transport) {
+            case LOCAL -> CommentBroker.local(bufferSize, overflow);
+            case EVENT_BUS -> CommentBroker.eventBus(vertx, bufferSize, overflow);
+            case NOTIFY -> CommentBroker.notify(vertx, connectOptions(config().getJsonObject("pg", new JsonObject())), bufferSize, overflow);
+        };
+    }
+
+    /**
+     * Route the reads to a replica when the `replica` object of the deployment config is set,
+     * e.g. `{"replica": {"host": "localhost", "port": 5433}}`. The reads fall back to the primary while the replica
+     * is down or lags more than `replica.maxLagMillis` behind.
+     */
+    private PoolRouter pools(Pool primary) {
+        var replicaConfig = config().getJsonObject("replica");
+        if (replicaConfig == null) {
+            return PoolRouter.single(primary);
+        }
+        long checkInterval = replicaConfig.getLong("checkIntervalMillis", 1000L);
+        long maxLag = replicaConfig.getLong("maxLagMillis", 1000L);
+        log.info("replica: {}, checkIntervalMillis={}, maxLagMillis={}", replicaConfig.getString("host", "localhost"), checkInterval, maxLag);
+        return PoolRouter.create(vertx, primary, pgPool(replicaConfig), Duration.ofMillis(checkInterval), Duration.ofMillis(maxLag));
+    }
+
+    private static PgConnectOptions connectOptions(JsonObject pgConfig) {
+        return new PgConnectOptions()
+                .setPort(pgConfig.getInteger("port", 5432))
+                .setHost(pgConfig.getString("host", "localhost"))
+                .setDatabase(pgConfig.getString("database", "blogdb"))
+                .setUser(pgConfig.getString("user", "user"))
+                .setPassword(pgConfig.getString("password", "password"));
+    }
+
+    private Pool pgPool(JsonObject pgConfig) {
+        PgConnectOptions connectOptions = connectOptions(pgConfig);
 
         // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        PoolOptions poolOptions = new PoolOptions().setMaxSize(pgConfig.getInteger("maxSize", 5));
 
         // Create the pool from the data object
         return PgBuilder.pool()
@@ -0,0 +1,251 @@
+package com.example.demo.gql;
+
+import com.example.demo.gql.types.Comment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableEmitter;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.micrometer.backends.BackendRegistries;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import io.vertx.sqlclient.Pool;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan the added comments out to the `commentAdded` subscribers.
+ * <p>
+ * The subscribers are indexed by the post they follow, every comment is delivered to the subscribers of its post and
+ * to the subscribers of all the posts only, no subscriber filters the comments of the other posts. Every subscriber
+ * has its own buffer of {@code bufferSize} comments for a slow client: on overflow, the oldest comment is dropped, or
+ * the subscription fails and the client is told so, see {@link Overflow}.
+ * <p>
+ * The comments reach the subscribers of the other MainVerticle instances, in this process or, when Vert.x is
+ * clustered, in the other nodes:
+ * <ul>
+ * <li>with the event bus transport, every added comment is published to {@link #ADDRESS},</li>
+ * <li>with the notify transport, the `comments_added` trigger of the database sends the comments inserted by every
+ * statement on the {@link #CHANNEL} channel, whatever inserted them. The trigger is installed by {@link #install(Pool)}
+ * from {@link #TRIGGERS}, not by `pg-initdb.d/init.sql`, so the inserts pay for the notifications with this transport
+ * only,</li>
+ * <li>with the local transport, the comments are delivered to the subscribers of this instance only.</li>
+ * </ul>
+ */
+@Slf4j
+public class CommentBroker {
+    public static final String ADDRESS = "comments.added";
+    public static final String CHANNEL = "comment_added";
+    public static final String TRIGGERS = "sql/comment_added.sql";
+
+    public enum Transport {
+        LOCAL, EVENT_BUS, NOTIFY
+    }
+
+    public enum Overflow {
+        // keep the newest comments
+        DROP_OLDEST,
+        // end the subscription with an error
+        DISCONNECT
+    }
+
+    // the brokers of all the MainVerticle instances, the active subscriptions gauge sums their subscribers
+    private static final Set<CommentBroker> BROKERS = ConcurrentHashMap.newKeySet();
+
+    private final Vertx vertx;
+    private final Transport transport;
+    private final PgConnectOptions connectOptions;
+    private final int bufferSize;
+    private final Overflow overflow;
+
+    // the subscribers of every post, and of all the posts
+    private final Map<String, Set<FlowableEmitter<Comment>>> subscribersByPost = new ConcurrentHashMap<>();
+    private final Set<FlowableEmitter<Comment>> subscribersOfAll = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final Counter delivered;
+    private final Counter overflowed;
+
+    private MessageConsumer<JsonObject> consumer;
+    private PgSubscriber subscriber;
+
+    private CommentBroker(Vertx vertx, Transport transport, PgConnectOptions connectOptions, int bufferSize, Overflow overflow) {
+        this.vertx = vertx;
+        this.transport = transport;
+        this.connectOptions = connectOptions;
+        this.bufferSize = bufferSize;
+        this.overflow = overflow;
+        BROKERS.add(this);
+        var registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            // registered once, the following registrations return the same gauge
+            Gauge.builder("graphql.subscriptions.active", BROKERS, brokers -> brokers.stream().mapToInt(CommentBroker::subscribers).sum())
+                    .tags("subscription", "commentAdded")
+                    .register(registry);
+        }
+        this.delivered = registry == null ? null : Counter.builder("graphql.subscriptions.delivered")
+                .tags("subscription", "commentAdded", "transport", transport.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+        this.overflowed = registry == null ? null : Counter.builder("graphql.subscriptions.overflowed")
+                .tags("subscription", "commentAdded", "overflow", overflow.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+
+    public static CommentBroker local(int bufferSize, Overflow overflow) {
+        return new CommentBroker(null, Transport.LOCAL, null, bufferSize, overflow);
+    }
+
+    public static CommentBroker eventBus(Vertx vertx, int bufferSize, Overflow overflow) {
+        return new CommentBroker(vertx, Transport.EVENT_BUS, null, bufferSize, overflow);
+    }
+
+    public static CommentBroker notify(Vertx vertx, PgConnectOptions connectOptions, int bufferSize, Overflow overflow) {
+        return new CommentBroker(vertx, Transport.NOTIFY, connectOptions, bufferSize, overflow);
+    }
+
+    public Future<Void> start() {
+        return switch (transport) {
+            case LOCAL -> Future.succeededFuture();
+            case EVENT_BUS -> {
+                consumer = vertx.eventBus().consumer(ADDRESS, message -> deliver(message.body().mapTo(Comment.class)));
+                yield consumer.completion();
+            }
+            case NOTIFY -> {
+                subscriber = PgSubscriber.subscriber(vertx, connectOptions)
+                        .reconnectPolicy(retries -> Math.min(5000L, 100L * (retries + 1)));
+                subscriber.channel(CHANNEL).handler(payload -> {
+                    try {
+                        new JsonArray(payload).stream()
+                                .map(comment -> ((JsonObject) comment).mapTo(Comment.class))
+                                .toList()
+                                .forEach(this::deliver);
+                    } catch (RuntimeException e) {
+                        log.warn("Invalid {} payload: {}", CHANNEL, payload, e);
+                    }
+                });
+                yield subscriber.connect();
+            }
+        };
+    }
+
+    /**
+     * Install the trigger feeding the notify transport, once per process, nothing is installed with the other
+     * transports.
+     */
+    public Future<Void> install(Pool pool) {
+        if (transport != Transport.NOTIFY) {
+            return Future.succeededFuture();
+        }
+        var first = vertx.sharedData().getLocalMap(CommentBroker.class.getName())
+                .putIfAbsent("triggers.installed", true) == null;
+        if (!first) {
+            return Future.succeededFuture();
+        }
+        return vertx.fileSystem().readFile(TRIGGERS)
+                .compose(script -> pool.query(script.toString()).execute())
+                .onSuccess(rs -> log.info("installed the {} trigger", CHANNEL))
+                .mapEmpty();
+    }
+
+    /**
+     * The comments added to a post, or to all the posts when the post id is null.
+     */
+    public Flowable<Comment> subscribe(String postId) {
+        Flowable<Comment> comments = Flowable.create(emitter -> {
+            var serialized = emitter.serialize();
+            if (postId == null) {
+                subscribersOfAll.add(serialized);
+            } else {
+                subscribersByPost.compute(postId, (id, set) -> {
+                    var subscribersOfPost = set == null ? ConcurrentHashMap.<FlowableEmitter<Comment>>newKeySet() : set;
+                    subscribersOfPost.add(serialized);
+                    return subscribersOfPost;
+                });
+            }
+            subscribers.incrementAndGet();
+            emitter.setCancellable(() -> unsubscribe(postId, serialized));
+        }, BackpressureStrategy.MISSING);
+
+        return comments.onBackpressureBuffer(
+                bufferSize,
+                this::overflowed,
+                overflow == Overflow.DROP_OLDEST ? BackpressureOverflowStrategy.DROP_OLDEST : BackpressureOverflowStrategy.ERROR
+        );
+    }
+
+    private void unsubscribe(String postId, FlowableEmitter<Comment> emitter) {
+        boolean removed;
+        if (postId == null) {
+            removed = subscribersOfAll.remove(emitter);
+        } else {
+            var holder = new boolean[1];
+            subscribersByPost.computeIfPresent(postId, (id, set) -> {
+                holder[0] = set.remove(emitter);
+                return set.isEmpty() ? null : set;
+            });
+            removed = holder[0];
+        }
+        if (removed) {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    private void overflowed() {
+        if (overflowed != null) {
+            overflowed.increment();
+        }
+    }
+
+    // publish an added comment to the subscribers of all the instances
+    public void publish(Comment comment) {
+        switch (transport) {
+            case LOCAL -> deliver(comment);
+            case EVENT_BUS -> vertx.eventBus().publish(ADDRESS, JsonObject.mapFrom(comment));
+            // sent by the trigger of the database
+            case NOTIFY -> {
+            }
+        }
+    }
+
+    private void deliver(Comment comment) {
+        var subscribersOfPost = comment.getPostId() == null ? null : subscribersByPost.get(comment.getPostId());
+        if (subscribersOfPost != null) {
+            subscribersOfPost.forEach(emitter -> emitter.onNext(comment));
+        }
+        subscribersOfAll.forEach(emitter -> emitter.onNext(comment));
+        if (delivered != null) {
+            delivered.increment((subscribersOfPost == null ? 0 : subscribersOfPost.size()) + subscribersOfAll.size());
+        }
+    }
+
+    public int subscribers() {
+        return subscribers.get();
+    }
+
+    public Future<Void> close() {
+        BROKERS.remove(this);
+        if (consumer != null) {
+            return consumer.unregister();
+        }
+        if (subscriber != null) {
+            return subscriber.close();
+        }
+        return Future.succeededFuture();
+    }
+
+    @Override
+    public String toString() {
+        return "CommentBroker{transport=" + transport + ", bufferSize=" + bufferSize + ", overflow=" + overflow + ", subscribers=" + subscribers() + "}";
+    }
+}
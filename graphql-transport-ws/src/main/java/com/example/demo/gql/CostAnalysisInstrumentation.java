@@ -0,0 +1,146 @@
+package com.example.demo.gql;
+
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.schema.GraphQLAppliedDirective;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.micrometer.backends.BackendRegistries;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reject the operations nested deeper than {@code maxDepth} or costing more than {@code maxCost}, before they are
+ * executed, a limit is disabled when it is not positive.
+ * <p>
+ * The cost of a field is the `weight` of its `@cost` directive plus the cost of its selection times the `multiplier`
+ * of the directive, both are 1 by default, e.g. a list field multiplies the cost of the fields selected on its items by
+ * the number of items it is expected to return. When the directive names a `multiplierArgument`, the value of that
+ * argument of the field is the multiplier instead, e.g. the `first` page size of a connection, the default multiplier
+ * when the argument is null. The introspection fields are free.
+ * <p>
+ * The cost of every operation is reported as `graphql.operation.cost`, the rejected operations are counted as
+ * `graphql.operation.rejected` tagged with the exceeded limit.
+ */
+@Slf4j
+public class CostAnalysisInstrumentation extends SimplePerformantInstrumentation {
+    public static final String DIRECTIVE = "cost";
+
+    record Analysis(int depth, int cost) {
+    }
+
+    private final int maxDepth;
+    private final int maxCost;
+    private final MeterRegistry registry;
+
+    private CostAnalysisInstrumentation(int maxDepth, int maxCost) {
+        this.maxDepth = maxDepth;
+        this.maxCost = maxCost;
+        this.registry = BackendRegistries.getDefaultNow();
+    }
+
+    public static CostAnalysisInstrumentation create(int maxDepth, int maxCost) {
+        return new CostAnalysisInstrumentation(maxDepth, maxCost);
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        var executionContext = parameters.getExecutionContext();
+        var analysis = analyze(executionContext);
+        var operation = executionContext.getOperationDefinition().getOperation().name().toLowerCase(Locale.ROOT);
+        log.debug("{} {}: depth={}, cost={}", operation, executionContext.getOperationDefinition().getName(), analysis.depth(), analysis.cost());
+        if (registry != null) {
+            DistributionSummary.builder("graphql.operation.cost").tag("operation", operation).register(registry).record(analysis.cost());
+        }
+
+        if (maxDepth > 0 && analysis.depth() > maxDepth) {
+            reject("depth");
+            throw new AbortExecutionException("maximum query depth exceeded " + analysis.depth() + " > " + maxDepth);
+        }
+        if (maxCost > 0 && analysis.cost() > maxCost) {
+            reject("cost");
+            throw new AbortExecutionException("maximum query cost exceeded " + analysis.cost() + " > " + maxCost);
+        }
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    private void reject(String limit) {
+        if (registry != null) {
+            Counter.builder("graphql.operation.rejected").tag("limit", limit).register(registry).increment();
+        }
+    }
+
+    static Analysis analyze(ExecutionContext executionContext) {
+        var traverser = QueryTraverser.newQueryTraverser()
+                .schema(executionContext.getGraphQLSchema())
+                .document(executionContext.getDocument())
+                .operationName(executionContext.getOperationDefinition().getName())
+                .coercedVariables(executionContext.getCoercedVariables())
+                .build();
+
+        // the cost of the selection of every field, the cost of the operation under the null key
+        Map<QueryVisitorFieldEnvironment, Integer> selectionCosts = new HashMap<>();
+        int[] depth = {0};
+        traverser.visitPostOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment env) {
+                int fieldDepth = depthOf(env);
+                if (fieldDepth < 0) {
+                    return;
+                }
+                depth[0] = Math.max(depth[0], fieldDepth);
+                int cost = cost(env, selectionCosts.getOrDefault(env, 0));
+                selectionCosts.merge(env.getParentEnvironment(), cost, CostAnalysisInstrumentation::add);
+            }
+        });
+        return new Analysis(depth[0], selectionCosts.getOrDefault(null, 0));
+    }
+
+    // -1 for the introspection fields
+    private static int depthOf(QueryVisitorFieldEnvironment env) {
+        int depth = 0;
+        for (var current = env; current != null; current = current.getParentEnvironment()) {
+            if (current.getField().getName().startsWith("__")) {
+                return -1;
+            }
+            depth++;
+        }
+        return depth;
+    }
+
+    private static int cost(QueryVisitorFieldEnvironment env, int selectionCost) {
+        var directive = env.getFieldDefinition().getAppliedDirective(DIRECTIVE);
+        int weight = argument(directive, "weight");
+        int multiplier = argument(directive, "multiplier");
+        // the arguments of the field, with their default values and the variables of the operation applied
+        var argument = directive == null ? null : directive.getArgument("multiplierArgument");
+        String multiplierArgument = argument == null ? null : argument.getValue();
+        if (multiplierArgument != null && env.getArguments().get(multiplierArgument) instanceof Number value) {
+            multiplier = Math.max(0, value.intValue());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, weight + (long) multiplier * selectionCost);
+    }
+
+    private static int argument(GraphQLAppliedDirective directive, String name) {
+        var argument = directive == null ? null : directive.getArgument(name);
+        Integer value = argument == null ? null : argument.getValue();
+        return value == null ? 1 : value;
+    }
+
+    private static int add(int a, int b) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) a + b);
+    }
+}
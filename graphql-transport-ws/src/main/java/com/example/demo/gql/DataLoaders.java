@@ -2,16 +2,22 @@ package com.example.demo.gql;
 
 import com.example.demo.gql.types.Author;
 import com.example.demo.gql.types.Comment;
+import com.example.demo.gql.types.Connection;
+import com.example.demo.gql.types.Post;
 import com.example.demo.service.AuthorService;
 import com.example.demo.service.PostService;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.dataloader.*;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -19,11 +25,26 @@ public class DataLoaders {
     final AuthorService authorService;
     final PostService postService;
 
+    // the optional caches behind the loaders of every execution, see `BoundedValueCache`
+    private BoundedValueCache<String, Author> authorsCache;
+    private BoundedValueCache<String, List<Comment>> commentsCache;
+
+    public DataLoaders sharedCache(Vertx vertx, int maxSize, Duration ttl) {
+        this.authorsCache = BoundedValueCache.shared(vertx, "authorsLoader", maxSize, ttl);
+        this.commentsCache = BoundedValueCache.shared(vertx, "commentsLoader", maxSize, ttl);
+        return this;
+    }
+
+    private static DataLoaderOptions options(ValueCache<?, ?> cache) {
+        var options = DataLoaderOptions.newOptions();
+        return cache == null ? options : options.setValueCache(cache);
+    }
+
     public DataLoader<String, Author> authorsLoader() {
         BatchLoaderWithContext<String, Author> batchLoader = (List<String> keys, BatchLoaderEnvironment environment) ->
                 authorService.getAuthorByIdIn(keys).toCompletionStage();
 
-        return DataLoaderFactory.newDataLoader(batchLoader);
+        return DataLoaderFactory.newDataLoader(batchLoader, options(authorsCache));
     }
 
     public DataLoader<String, List<Comment>> commentsLoader() {
@@ -43,6 +64,50 @@ public class DataLoaders {
                                 }
                         )
                         .toCompletionStage();
+        return DataLoaderFactory.newMappedDataLoader(batchLoader, options(commentsCache));
+    }
+
+    public DataLoader<String, List<Post>> postsByAuthorLoader() {
+        MappedBatchLoaderWithContext<String, List<Post>> batchLoader = (Set<String> keys, BatchLoaderEnvironment environment) ->
+                postService.getPostsByAuthorIdIn(keys)
+                        .map(postsByAuthor -> {
+                            // the authors without posts are absent from the grouped posts
+                            Map<String, List<Post>> mappedPosts = new HashMap<>();
+                            keys.forEach(k -> mappedPosts.put(k, postsByAuthor.getOrDefault(k, List.of())));
+                            return mappedPosts;
+                        })
+                        .toCompletionStage();
+        return DataLoaderFactory.newMappedDataLoader(batchLoader);
+    }
+
+    // the key of a page of the comments of a post
+    public record CommentsPage(String postId, int first, String after) {
+    }
+
+    public DataLoader<CommentsPage, Connection<Comment>> commentsConnectionLoader() {
+        // the posts of a list are usually paged alike, one window query per distinct page of the keys
+        MappedBatchLoaderWithContext<CommentsPage, Connection<Comment>> batchLoader = (Set<CommentsPage> keys, BatchLoaderEnvironment environment) -> {
+            var keysByPage = keys.stream().collect(Collectors.groupingBy(key -> new CommentsPage(null, key.first(), key.after())));
+            List<Future<Map<CommentsPage, Connection<Comment>>>> pages = keysByPage.entrySet().stream()
+                    .map(entry -> Future.<Void>succeededFuture()
+                            .compose(v -> postService.getCommentsConnectionsByPostIdIn(
+                                    entry.getValue().stream().map(CommentsPage::postId).collect(Collectors.toSet()),
+                                    entry.getKey().first(),
+                                    entry.getKey().after()
+                            ))
+                            .map(connections -> entry.getValue().stream()
+                                    .collect(Collectors.toMap(key -> key, key -> connections.get(key.postId())))
+                            )
+                    )
+                    .collect(Collectors.toList());
+            return Future.all(pages)
+                    .map(v -> {
+                        Map<CommentsPage, Connection<Comment>> connections = new HashMap<>();
+                        pages.forEach(page -> connections.putAll(page.result()));
+                        return connections;
+                    })
+                    .toCompletionStage();
+        };
         return DataLoaderFactory.newMappedDataLoader(batchLoader);
     }
 }
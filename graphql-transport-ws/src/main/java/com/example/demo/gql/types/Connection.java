@@ -0,0 +1,22 @@
+package com.example.demo.gql.types;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a `PostConnection` or a `CommentConnection`
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Connection<T> {
+
+    @Builder.Default
+    private List<Edge<T>> edges = new ArrayList<>();
+
+    private PageInfo pageInfo;
+}
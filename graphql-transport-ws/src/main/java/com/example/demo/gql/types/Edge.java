@@ -0,0 +1,18 @@
+package com.example.demo.gql.types;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a `PostEdge` or a `CommentEdge`
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Edge<T> {
+
+    private String cursor;
+
+    private T node;
+}
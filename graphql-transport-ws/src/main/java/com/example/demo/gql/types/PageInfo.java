@@ -0,0 +1,17 @@
+package com.example.demo.gql.types;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageInfo {
+
+    private boolean hasNextPage;
+
+    private String endCursor;
+}
@@ -0,0 +1,11 @@
+package com.example.demo.model;
+
+import java.util.List;
+
+// a post fetched with its author and comments in one query, the relations not fetched are null
+public record PostAggregate(
+        PostEntity post,
+        AuthorEntity author,
+        List<CommentEntity> comments
+) {
+}
@@ -20,10 +20,11 @@ public class AuthorRepository {
             row.getLocalDateTime("created_at")
     );
 
-    private final Pool client;
+    // the reads go to the replica when there is one, see `PoolRouter`
+    private final PoolRouter pools;
 
     public Future<List<AuthorEntity>> findAll() {
-        return client.query("SELECT * FROM users ORDER BY created_at DESC ")
+        return pools.read().query("SELECT * FROM users ORDER BY created_at DESC ")
                 .execute()
                 .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                         .map(MAPPER)
@@ -32,14 +33,14 @@ public class AuthorRepository {
     }
 
     public Future<Integer> deleteAll() {
-        return client.query("DELETE FROM users").execute()
+        return pools.write().query("DELETE FROM users").execute()
                 .map(SqlResult::rowCount);
     }
 
 
     public Future<AuthorEntity> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
-        return client.preparedQuery("SELECT * FROM users WHERE id=$1").execute(Tuple.of(id))
+        return pools.read().preparedQuery("SELECT * FROM users WHERE id=$1").execute(Tuple.of(id))
                 .map(RowSet::iterator)
                 .map(iterator -> {
                     if (iterator.hasNext()) return MAPPER.apply(iterator.next());
@@ -49,7 +50,7 @@ public class AuthorRepository {
 
 
     public Future<List<AuthorEntity>> findByIdIn(List<UUID> uuids) {
-        return client.preparedQuery("SELECT * FROM users WHERE id = any($1)").execute(Tuple.of(uuids.toArray(new UUID[0])))
+        return pools.read().preparedQuery("SELECT * FROM users WHERE id = any($1)").execute(Tuple.of(uuids.toArray(new UUID[0])))
                 .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                         .map(MAPPER)
                         .toList()
@@ -57,7 +58,7 @@ public class AuthorRepository {
     }
 
     public Future<UUID> create(String name, String email) {
-        return client.preparedQuery("INSERT INTO users(name, email) VALUES ($1, $2) RETURNING (id)")
+        return pools.write().preparedQuery("INSERT INTO users(name, email) VALUES ($1, $2) RETURNING (id)")
                 .execute(Tuple.of(name, email))
                 .map(rs -> rs.iterator().next().getUUID("id"));
     }
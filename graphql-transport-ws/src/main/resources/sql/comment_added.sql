@@ -0,0 +1,47 @@
+-- notify the comments inserted by every statement on `comment_added`, the `commentAdded` subscription channel of the
+-- `graphql-transport-ws` module, installed by `CommentBroker.install` when the `notify` transport is configured only.
+-- A statement sends one notification with the json array of its comments, or one per comment when they do not fit in
+-- a payload. The payload limit is 8000 bytes, not characters: a comment of 255 multibyte characters takes up to 1020.
+CREATE OR REPLACE FUNCTION notify_comment_added() RETURNS trigger AS $$
+DECLARE
+    comments text;
+    comment record;
+    payload text;
+BEGIN
+    SELECT json_agg(json_build_object(
+        'id', id,
+        'content', content,
+        'createdAt', created_at,
+        'postId', post_id
+    ))::text INTO comments FROM new_comments;
+    IF comments IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF octet_length(comments) <= 7900 THEN
+        PERFORM pg_notify('comment_added', comments);
+        RETURN NULL;
+    END IF;
+    FOR comment IN SELECT * FROM new_comments LOOP
+        payload := json_build_array(json_build_object(
+            'id', comment.id,
+            'content', comment.content,
+            'createdAt', comment.created_at,
+            'postId', comment.post_id
+        ))::text;
+        -- a too long payload would fail the INSERT, the comment is not delivered to the subscribers instead
+        IF octet_length(payload) <= 7900 THEN
+            PERFORM pg_notify('comment_added', payload);
+        ELSE
+            RAISE WARNING 'comment % is too large to be notified on comment_added', comment.id;
+        END IF;
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- the row trigger of the former `init.sql`
+DROP TRIGGER IF EXISTS comment_added ON comments;
+
+CREATE OR REPLACE TRIGGER comments_added
+    AFTER INSERT ON comments REFERENCING NEW TABLE AS new_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_comment_added();
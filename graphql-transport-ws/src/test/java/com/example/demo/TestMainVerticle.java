@@ -1,5 +1,8 @@
 package com.example.demo;
 
+import com.example.demo.gql.CommentBroker;
+import com.example.demo.gql.types.Comment;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.WebSocketClient;
 import io.vertx.core.http.WebSocketClientOptions;
@@ -100,4 +103,42 @@ public class TestMainVerticle {
         assertThat(createdPostReplay).hasSize(1);
         assertThat(createdPostReplay.getFirst()).isNotNull();
     }
+
+    @Test
+    public void testCommentBrokerFansOutPerPostWithBoundedBuffers() {
+        var broker = CommentBroker.local(2, CommentBroker.Overflow.DROP_OLDEST);
+        var ofPost = broker.subscribe("post-1").test();
+        var ofAll = broker.subscribe(null).test();
+        // a slow subscriber, which has requested nothing yet
+        var slow = broker.subscribe("post-1").test(0);
+        assertThat(broker.subscribers()).isEqualTo(3);
+
+        for (int i = 0; i < 3; i++) {
+            broker.publish(Comment.builder().id("comment-" + i).postId("post-1").build());
+        }
+        broker.publish(Comment.builder().id("comment-3").postId("post-2").build());
+
+        assertThat(ofPost.values()).extracting(Comment::getId).containsExactly("comment-0", "comment-1", "comment-2");
+        assertThat(ofAll.values()).extracting(Comment::getId).containsExactly("comment-0", "comment-1", "comment-2", "comment-3");
+        // the oldest comment was dropped from the full buffer
+        slow.request(10);
+        assertThat(slow.values()).extracting(Comment::getId).containsExactly("comment-1", "comment-2");
+
+        ofPost.cancel();
+        ofAll.cancel();
+        slow.cancel();
+        assertThat(broker.subscribers()).isZero();
+    }
+
+    @Test
+    public void testCommentBrokerDisconnectsOverflowingSubscriber() {
+        var broker = CommentBroker.local(1, CommentBroker.Overflow.DISCONNECT);
+        var slow = broker.subscribe("post-1").test(0);
+
+        broker.publish(Comment.builder().id("comment-0").postId("post-1").build());
+        broker.publish(Comment.builder().id("comment-1").postId("post-1").build());
+
+        slow.assertError(MissingBackpressureException.class);
+        assertThat(broker.subscribers()).isZero();
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.demo
+
+import io.vertx.launcher.application.HookContext
+import io.vertx.launcher.application.VertxApplication
+import io.vertx.launcher.application.VertxApplicationHooks
+
+/**
+ * The `VertxApplication` launcher with the Micrometer metrics enabled, see [Metrics].
+ */
+class DemoLauncher(args: Array<String>) : VertxApplication(args), VertxApplicationHooks {
+    companion object {
+        @JvmStatic
+        fun main(args: Array<String>) {
+            DemoLauncher(args).launch()
+        }
+    }
+
+    override fun beforeStartingVertx(context: HookContext) {
+        context.vertxOptions().setMetricsOptions(Metrics.options())
+    }
+}
@@ -14,6 +14,7 @@ import io.vertx.kotlin.core.json.obj
 import io.vertx.kotlin.coroutines.CoroutineRouterSupport
 import io.vertx.kotlin.coroutines.CoroutineVerticle
 import io.vertx.kotlin.coroutines.coAwait
+import io.vertx.micrometer.PrometheusScrapingHandler
 import io.vertx.pgclient.PgBuilder
 import io.vertx.pgclient.PgConnectOptions
 import io.vertx.sqlclient.Pool
@@ -71,6 +72,9 @@ class MainVerticle : CoroutineVerticle(), CoroutineRouterSupport {
         // Configure routes
         val router = routes(postHandlers)
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx)
+
         // Create the HTTP server
         val options = httpServerOptionsOf(idleTimeout = 5, idleTimeoutUnit = TimeUnit.MINUTES, logActivity = true)
         val result = vertx.createHttpServer(options) // Handle every request using the router
@@ -125,6 +129,9 @@ class MainVerticle : CoroutineVerticle(), CoroutineRouterSupport {
                 handlers.delete(it)
             }
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create())
+
         router.route().coFailureHandler {
             if (it.failure() is PostNotFoundException) {
                 it.response()
@@ -9,6 +9,7 @@ import io.vertx.core.Promise
 import io.vertx.core.json.jackson.DatabindCodec
 import io.vertx.ext.web.Router
 import io.vertx.ext.web.handler.BodyHandler
+import io.vertx.micrometer.PrometheusScrapingHandler
 import io.vertx.pgclient.PgBuilder
 import io.vertx.pgclient.PgConnectOptions
 import io.vertx.sqlclient.Pool
@@ -64,6 +65,9 @@ class MainVerticle : VerticleBase() {
         // Configure routes
         val router = routes(postHandlers)
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx)
+
         // Create the HTTP server
         return initializer.run()
             .compose {
@@ -109,6 +113,9 @@ class MainVerticle : VerticleBase() {
         router.delete("/posts/:id")
             .handler { handlers.delete(it) }
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create())
+
         router.get("/hello").handler { it.response().end("Hello from my route") }
 
         return router
@@ -0,0 +1,69 @@
+package com.example.demo
+
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.TimeGauge
+import io.vertx.core.Vertx
+import io.vertx.core.VertxOptions
+import io.vertx.core.metrics.MetricsOptions
+import io.vertx.micrometer.Label
+import io.vertx.micrometer.MicrometerMetricsOptions
+import io.vertx.micrometer.VertxPrometheusOptions
+import io.vertx.micrometer.backends.BackendRegistries
+import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Micrometer metrics of the Vert.x instance, scraped by Prometheus from the `/metrics` route.
+ *
+ * Besides the built-in metrics, e.g. `vertx_http_server_response_time_seconds` per route and
+ * `vertx_pool_queue_time_seconds`/`vertx_pool_in_use` of the pg pool, the event loop running the MainVerticle
+ * reports its lag, see [monitorEventLoop].
+ */
+object Metrics {
+    private const val PROBE_INTERVAL_MILLIS = 100L
+    private val BLOCKED_THRESHOLD_NANOS = VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME_UNIT
+        .toNanos(VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME)
+
+    fun options(): MetricsOptions = MicrometerMetricsOptions()
+        .setEnabled(true)
+        .setJvmMetricsEnabled(true)
+        // the route pattern, e.g. `/posts/:id`, rather than the request path keeps the cardinality low
+        .setLabels(EnumSet.of(Label.HTTP_ROUTE, Label.HTTP_METHOD, Label.HTTP_CODE, Label.POOL_TYPE))
+        .setPrometheusOptions(
+            VertxPrometheusOptions()
+                .setEnabled(true)
+                // the histogram buckets, to compute the percentiles with `histogram_quantile`
+                .setPublishQuantiles(true)
+        )
+
+    /**
+     * Report the lag of the current event loop, the delay of a periodic timer beyond its interval.
+     *
+     * `vertx.eventloop.lag` is the last measured lag, `vertx.eventloop.blocked` counts the probes delayed by more than
+     * the max event loop execute time. It must be called from the event loop, nothing is reported when the metrics
+     * are not enabled.
+     */
+    fun monitorEventLoop(vertx: Vertx) {
+        val registry = BackendRegistries.getDefaultNow() ?: return
+        val thread = Thread.currentThread().name
+        val lag = AtomicLong()
+        TimeGauge.builder("vertx.eventloop.lag", lag, TimeUnit.NANOSECONDS) { it.get().toDouble() }
+            .tag("thread", thread)
+            .register(registry)
+        val blocked = Counter.builder("vertx.eventloop.blocked")
+            .tag("thread", thread)
+            .register(registry)
+
+        var last = System.nanoTime()
+        vertx.setPeriodic(PROBE_INTERVAL_MILLIS) {
+            val now = System.nanoTime()
+            val delay = maxOf(0L, now - last - TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS))
+            last = now
+            lag.set(delay)
+            if (delay > BLOCKED_THRESHOLD_NANOS) {
+                blocked.increment()
+            }
+        }
+    }
+}
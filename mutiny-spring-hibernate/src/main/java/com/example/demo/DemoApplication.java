@@ -1,5 +1,6 @@
 package com.example.demo;
 
+import io.vertx.core.VertxOptions;
 import io.vertx.core.spi.VerticleFactory;
 import io.vertx.mutiny.core.Vertx;
 import org.hibernate.reactive.mutiny.Mutiny;
@@ -25,7 +26,8 @@ public class DemoApplication {
 
     @Bean
     public Vertx vertx(VerticleFactory verticleFactory) {
-        Vertx vertx = Vertx.vertx();
+        // enable the Micrometer metrics, see `Metrics`
+        Vertx vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(Metrics.options()));
         vertx.registerVerticleFactory(verticleFactory);
         return vertx;
     }
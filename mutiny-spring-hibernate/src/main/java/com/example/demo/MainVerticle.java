@@ -7,6 +7,7 @@ import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.vertx.core.AbstractVerticle;
 import io.vertx.core.VerticleBase;
 import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import io.vertx.mutiny.ext.web.Router;
 import io.vertx.mutiny.ext.web.handler.BodyHandler;
 import org.springframework.stereotype.Component;
@@ -56,6 +57,9 @@ public class MainVerticle extends AbstractVerticle {
         // Configure routes
         var router = routes(postHandlers);
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx.getDelegate());
+
         // Create the HTTP server
         return vertx.createHttpServer()
             // Handle every request using the router
@@ -89,6 +93,10 @@ public class MainVerticle extends AbstractVerticle {
         router.delete("/posts/:id")
             .handler(handlers::delete);
 
+        // the Prometheus scrape endpoint, see `Metrics`, the core handler serves the delegated RoutingContext
+        var scrapingHandler = PrometheusScrapingHandler.create();
+        router.get("/metrics").handler(rc -> scrapingHandler.handle(rc.getDelegate()));
+
         // Alternatively, use a respond to receive a function using RoutingContext as input arguments.
         // see: https://github.com/vertx-howtos/hibernate-reactive-howto/blob/master/src/main/java/io/vertx/howtos/hr/MainVerticle.java
         /*router.get("/posts").produces("application/json")
@@ -0,0 +1,76 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.TimeGauge;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.micrometer.Label;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.VertxPrometheusOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer metrics of the Vert.x instance, scraped by Prometheus from the `/metrics` route.
+ * <p>
+ * Besides the built-in metrics, e.g. `vertx_http_server_response_time_seconds` per route and
+ * `vertx_pool_queue_time_seconds`/`vertx_pool_in_use` of the Hibernate Reactive pg pool, every event loop running a MainVerticle
+ * reports its lag, see {@link #monitorEventLoop(Vertx)}.
+ */
+public final class Metrics {
+
+    private static final long PROBE_INTERVAL_MILLIS = 100;
+    private static final long BLOCKED_THRESHOLD_NANOS = VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME_UNIT
+        .toNanos(VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME);
+
+    private Metrics() {
+    }
+
+    public static MetricsOptions options() {
+        return new MicrometerMetricsOptions()
+            .setEnabled(true)
+            .setJvmMetricsEnabled(true)
+            // the route pattern, e.g. `/posts/:id`, rather than the request path keeps the cardinality low
+            .setLabels(EnumSet.of(Label.HTTP_ROUTE, Label.HTTP_METHOD, Label.HTTP_CODE, Label.POOL_TYPE))
+            .setPrometheusOptions(new VertxPrometheusOptions()
+                .setEnabled(true)
+                // the histogram buckets, to compute the percentiles with `histogram_quantile`
+                .setPublishQuantiles(true));
+    }
+
+    /**
+     * Report the lag of the current event loop, the delay of a periodic timer beyond its interval.
+     * <p>
+     * `vertx.eventloop.lag` is the last measured lag, `vertx.eventloop.blocked` counts the probes delayed by more than
+     * the max event loop execute time, the ones the Vert.x blocked thread checker warns about.
+     * It must be called from the event loop, nothing is reported when the metrics are not enabled.
+     */
+    public static void monitorEventLoop(Vertx vertx) {
+        var registry = BackendRegistries.getDefaultNow();
+        if (registry == null) {
+            return;
+        }
+        var thread = Thread.currentThread().getName();
+        var lag = new AtomicLong();
+        TimeGauge.builder("vertx.eventloop.lag", lag, TimeUnit.NANOSECONDS, AtomicLong::get)
+            .tag("thread", thread)
+            .register(registry);
+        var blocked = Counter.builder("vertx.eventloop.blocked")
+            .tag("thread", thread)
+            .register(registry);
+
+        var last = new AtomicLong(System.nanoTime());
+        vertx.setPeriodic(PROBE_INTERVAL_MILLIS, id -> {
+            long now = System.nanoTime();
+            long delay = Math.max(0, now - last.getAndSet(now) - TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS));
+            lag.set(delay);
+            if (delay > BLOCKED_THRESHOLD_NANOS) {
+                blocked.increment();
+            }
+        });
+    }
+}
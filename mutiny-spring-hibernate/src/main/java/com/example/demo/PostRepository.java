@@ -32,31 +32,42 @@ public class PostRepository {
         return this.sessionFactory.withSession(session -> session.createQuery(query).getResultList());
     }
 
+    // the `search` column and its GIN index are created by `META-INF/search.sql`
+    private static final String SEARCH_SQL = """
+        SELECT p.id, p.title, p.content, p.created_at
+        FROM posts p, websearch_to_tsquery('english', :q) query
+        WHERE p.search @@ query
+        ORDER BY ts_rank(p.search, query) DESC, p.created_at DESC
+        """;
+
+    /**
+     * Full-text search of the title and content, the best matches first.
+     * <p>
+     * The keyword accepts the web search syntax, e.g. `"exact phrase"`, `a or b`, `-excluded`.
+     * All the posts are returned by the creation time when the keyword is empty.
+     */
     public Uni<List<Post>> findByKeyword(String q, int offset, int limit) {
-
-        CriteriaBuilder cb = this.sessionFactory.getCriteriaBuilder();
-        // create query
-        CriteriaQuery<Post> query = cb.createQuery(Post.class);
-        // set the root class
-        Root<Post> root = query.from(Post.class);
-
-        // if keyword is provided
-        if (q != null && !q.trim().isEmpty()) {
-            query.where(
-                cb.or(
-                    cb.like(root.get(Post_.title), "%" + q + "%"),
-                    cb.like(root.get(Post_.content), "%" + q + "%")
-                )
-            );
+        if (q == null || q.isBlank()) {
+            CriteriaBuilder cb = this.sessionFactory.getCriteriaBuilder();
+            // create query
+            CriteriaQuery<Post> query = cb.createQuery(Post.class);
+            // set the root class
+            Root<Post> root = query.from(Post.class);
+            query.orderBy(cb.desc(root.get(Post_.createdAt)));
+            //perform query
+            return this.sessionFactory.withSession(session -> session.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList());
         }
-        //perform query
-        return this.sessionFactory.withSession(session -> session.createQuery(query)
+
+        return this.sessionFactory.withSession(session -> session.createNativeQuery(SEARCH_SQL, Post.class)
+            .setParameter("q", q)
             .setFirstResult(offset)
             .setMaxResults(limit)
             .getResultList());
     }
 
-
     public Uni<Post> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
         return this.sessionFactory.withSession(session -> session.find(Post.class, id))
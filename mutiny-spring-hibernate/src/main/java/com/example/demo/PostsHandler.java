@@ -12,6 +12,9 @@ import java.util.logging.Logger;
 class PostsHandler {
     private static final Logger LOGGER = Logger.getLogger(PostsHandler.class.getSimpleName());
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final PostRepository posts;
 
     PostsHandler(PostRepository posts) {
@@ -20,11 +23,11 @@ class PostsHandler {
 
 
     public void all(RoutingContext rc) {
-//        var params = rc.queryParams();
-//        var q = params.get("q");
-//        var limit = params.get("limit") == null ? 10 : Integer.parseInt(params.get("q"));
-//        var offset = params.get("offset") == null ? 0 : Integer.parseInt(params.get("offset"));
-//        LOGGER.log(Level.INFO, " find by keyword: q={0}, limit={1}, offset={2}", new Object[]{q, limit, offset});
+        var params = rc.queryParams();
+        if (params.contains("q")) {
+            search(rc);
+            return;
+        }
         this.posts.findAll()
             .subscribe()
             .with(
@@ -36,6 +39,32 @@ class PostsHandler {
             );
     }
 
+    // `GET /posts?q=keyword&offset=0&limit=10`
+    private void search(RoutingContext rc) {
+        var params = rc.queryParams();
+        var q = params.get("q");
+        int offset;
+        int limit;
+        try {
+            offset = params.contains("offset") ? Integer.parseInt(params.get("offset")) : 0;
+            limit = params.contains("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+        } catch (NumberFormatException e) {
+            rc.response().setStatusCode(400).endAndForget("offset and limit must be numbers");
+            return;
+        }
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            rc.response().setStatusCode(400).endAndForget("offset must be >= 0, limit must be in [1, " + MAX_PAGE_SIZE + "]");
+            return;
+        }
+        LOGGER.log(Level.INFO, "find by keyword: q={0}, limit={1}, offset={2}", new Object[]{q, limit, offset});
+        this.posts.findByKeyword(q, offset, limit)
+            .subscribe()
+            .with(
+                data -> rc.response().endAndForget(Json.encode(data)),
+                rc::fail
+            );
+    }
+
     public void get(RoutingContext rc) {
         var params = rc.pathParams();
         var id = params.get("id");
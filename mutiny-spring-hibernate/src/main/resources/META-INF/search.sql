@@ -0,0 +1,4 @@
+-- run after the schema is created, see `jakarta.persistence.sql-load-script-source` in persistence.xml.
+-- one statement per line, the title is weighted over the content in the `ts_rank` of `PostRepository.findByKeyword`.
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS search tsvector GENERATED ALWAYS AS (setweight(to_tsvector('english', coalesce(title, '')), 'A') || setweight(to_tsvector('english', coalesce(content, '')), 'B')) STORED;
+CREATE INDEX IF NOT EXISTS idx_posts_search ON posts USING GIN (search);
@@ -79,5 +79,28 @@ public class TestMainVerticle {
             );
     }
 
+    @Test
+    void testSearchByKeyword(VertxTestContext testContext) {
+        var options = new HttpClientOptions()
+            .setDefaultPort(8888);
+        var client = vertx.createHttpClient(options);
+
+        // web search syntax, the `second` post is excluded
+        client.request(HttpMethod.GET, "/posts?q=quarkus%20-second&limit=5")
+            .flatMap(HttpClientRequest::send)
+            .flatMap(HttpClientResponse::body)
+            .subscribe()
+            .with(buffer ->
+                    testContext.verify(
+                        () -> {
+                            var posts = buffer.toJsonArray();
+                            assertThat(posts.size()).isEqualTo(1);
+                            assertThat(posts.getJsonObject(0).getString("title")).isEqualTo("Hello Quarkus");
+                            testContext.completeNow();
+                        }
+                    ),
+                testContext::failNow
+            );
+    }
 
 }
@@ -30,3 +30,15 @@ CREATE TABLE IF NOT EXISTS comments (
     version INTEGER,
     PRIMARY KEY (id)
 );
+
+CREATE INDEX IF NOT EXISTS idx_posts_created_at_id ON posts (created_at, id);
+
+-- the posts of the authors, see `PostRepository.findByAuthorIdIn` of the `graphql-*` modules
+CREATE INDEX IF NOT EXISTS idx_posts_author_id ON posts (author_id);
+
+-- the pages of the comments of the posts, see `CommentRepository.findPageByPostIdIn` of the `graphql-*` modules
+CREATE INDEX IF NOT EXISTS idx_comments_post_id_created_at_id ON comments (post_id, created_at, id);
+
+-- the LISTEN/NOTIFY triggers are not installed here, every write would pay for them, they are installed by the modules
+-- configured with the notify transport: `web/src/main/resources/sql/posts_changed.sql` and
+-- `graphql-transport-ws/src/main/resources/sql/comment_added.sql`
@@ -0,0 +1,4 @@
+#!/bin/bash
+# accept the replication connections of the `postgres-replica` standby of docker-compose.yml
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
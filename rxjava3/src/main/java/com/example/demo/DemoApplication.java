@@ -0,0 +1,39 @@
+package com.example.demo;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Deploy one MainVerticle instance per core, all of them listening on the same port.
+ * <p>
+ * The number of instances can be set with the `instances` system property,
+ * and an optional JSON config file(see `MainVerticle.pgPool`) can be passed as the first argument.
+ */
+public class DemoApplication {
+    private static final Logger log = LoggerFactory.getLogger(DemoApplication.class);
+
+    public static void main(String[] args) throws IOException {
+        int instances = Integer.getInteger("instances", Runtime.getRuntime().availableProcessors());
+        var config = args.length > 0 ? new JsonObject(Files.readString(Path.of(args[0]))) : new JsonObject();
+
+        var options = new DeploymentOptions()
+            .setInstances(instances)
+            .setConfig(config);
+
+        var vertx = Vertx.builder().with(new VertxOptions().setMetricsOptions(Metrics.options())).build();
+        vertx.deployVerticle(MainVerticle.class.getName(), options)
+            .onSuccess(id -> log.info("deployed {} instances of MainVerticle: {}", instances, id))
+            .onFailure(throwable -> {
+                log.error("Failed to deploy MainVerticle: {}", throwable.getMessage());
+                vertx.close();
+            });
+    }
+}
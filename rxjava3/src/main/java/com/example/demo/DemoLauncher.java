@@ -0,0 +1,24 @@
+package com.example.demo;
+
+import io.vertx.launcher.application.HookContext;
+import io.vertx.launcher.application.VertxApplication;
+import io.vertx.launcher.application.VertxApplicationHooks;
+
+/**
+ * The `VertxApplication` launcher with the Micrometer metrics enabled, see {@link Metrics}.
+ */
+public class DemoLauncher extends VertxApplication implements VertxApplicationHooks {
+
+    public DemoLauncher(String[] args) {
+        super(args);
+    }
+
+    public static void main(String[] args) {
+        new DemoLauncher(args).launch();
+    }
+
+    @Override
+    public void beforeStartingVertx(HookContext context) {
+        context.vertxOptions().setMetricsOptions(Metrics.options());
+    }
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.reactivex.rxjava3.core.Completable;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.rxjava3.core.AbstractVerticle;
 import io.vertx.rxjava3.ext.web.Router;
@@ -15,6 +17,8 @@ import io.vertx.sqlclient.PoolOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+
 public class MainVerticle extends AbstractVerticle {
     private static final Logger log = LoggerFactory.getLogger(MainVerticle.class);
 
@@ -36,20 +40,23 @@ public class MainVerticle extends AbstractVerticle {
         //Create a PgPool instance
         var pgPool = pgPool();
 
+        //Creating the optional post cache, disabled unless `cache.maxSize` is configured
+        var postCache = postCache();
+
         //Creating PostRepository
-        var postRepository = PostRepository.create(pgPool);
+        var postRepository = PostRepository.create(pgPool, postCache);
 
         //Creating PostHandler
         var postHandlers = PostsHandler.create(postRepository);
 
-        // Initializing the sample data
-        var initializer = DataInitializer.create(pgPool);
-
         // Configure routes
         var router = routes(postHandlers);
 
-        // Create the HTTP server and return the future
-        return initializer.run()
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx.getDelegate());
+
+        // Create the HTTP server and return the future, all the deployed instances share the same port
+        return initializeData(pgPool)
             .andThen(vertx.createHttpServer()
                 .requestHandler(router)
                 .rxListen(8888)
@@ -119,21 +126,57 @@ public class MainVerticle extends AbstractVerticle {
         router.delete("/posts/:id")
             .handler(handlers::delete);
 
+        // the Prometheus scrape endpoint, see `Metrics`, the core handler serves the delegated RoutingContext
+        var scrapingHandler = PrometheusScrapingHandler.create();
+        router.get("/metrics").handler(rc -> scrapingHandler.handle(rc.getDelegate()));
+
         router.get("/hello").handler(rc -> rc.response().end("Hello from my route"));
 
         return router;
     }
 
+    private PostCache postCache() {
+        var cacheConfig = config().getJsonObject("cache", new JsonObject());
+        int maxSize = cacheConfig.getInteger("maxSize", 0);
+        long ttl = cacheConfig.getLong("ttlSeconds", 60L);
+        log.info("post cache: maxSize={}, ttlSeconds={}", maxSize, ttl);
+        return PostCache.create(maxSize, Duration.ofSeconds(ttl));
+    }
+
+    // Initializing the sample data, only once when several instances are deployed
+    private Completable initializeData(Pool pgPool) {
+        var first = vertx.sharedData().<String, Boolean>getLocalMap(MainVerticle.class.getName())
+            .putIfAbsent("data.initialized", true) == null;
+        return first ? DataInitializer.create(pgPool).run() : Completable.complete();
+    }
+
+    /**
+     * Create the pool from the `pg` object of the deployment config.
+     * <p>
+     * By default every MainVerticle instance owns a pool whose connections run on the instance event loop.
+     * When `pg.shared` is true, all the instances use the same named pool spread over `pg.eventLoopSize` event loops.
+     */
     private Pool pgPool() {
+        var pgConfig = config().getJsonObject("pg", new JsonObject());
         PgConnectOptions connectOptions = new PgConnectOptions()
-            .setPort(5432)
-            .setHost("localhost")
-            .setDatabase("blogdb")
-            .setUser("user")
-            .setPassword("password");
+            .setPort(pgConfig.getInteger("port", 5432))
+            .setHost(pgConfig.getString("host", "localhost"))
+            .setDatabase(pgConfig.getString("database", "blogdb"))
+            .setUser(pgConfig.getString("user", "user"))
+            .setPassword(pgConfig.getString("password", "password"))
+            .setPipeliningLimit(pgConfig.getInteger("pipeliningLimit", PgConnectOptions.DEFAULT_PIPELINING_LIMIT));
 
         // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        PoolOptions poolOptions = new PoolOptions()
+            .setMaxSize(pgConfig.getInteger("maxSize", 5))
+            .setMaxWaitQueueSize(pgConfig.getInteger("maxWaitQueueSize", PoolOptions.DEFAULT_MAX_WAIT_QUEUE_SIZE));
+        if (pgConfig.getBoolean("shared", false)) {
+            poolOptions
+                .setShared(true)
+                .setName(pgConfig.getString("poolName", "posts-pool"))
+                .setEventLoopSize(pgConfig.getInteger("eventLoopSize", Runtime.getRuntime().availableProcessors()));
+        }
+        log.info("pg pool options: {}", poolOptions.toJson());
 
         // Create the pool from the data object
         return PgBuilder.pool()
@@ -16,7 +16,8 @@ import java.util.stream.StreamSupport;
 public class PostRepository {
     private static final Logger log = LoggerFactory.getLogger(PostRepository.class);
 
-    private static final Function<Row, Post> MAPPER = (Row row) ->
+    // package private, used by the benchmarks module
+    static final Function<Row, Post> MAPPER = (Row row) ->
         new Post(
             row.getUUID("id"),
             row.getString("title"),
@@ -26,14 +27,20 @@ public class PostRepository {
 
 
     private final Pool client;
+    private final PostCache cache;
 
-    private PostRepository(Pool pgClient) {
+    private PostRepository(Pool pgClient, PostCache cache) {
         this.client = pgClient;
+        this.cache = cache;
     }
 
     //factory method
     public static PostRepository create(Pool client) {
-        return new PostRepository(client);
+        return new PostRepository(client, PostCache.disabled());
+    }
+
+    public static PostRepository create(Pool client, PostCache cache) {
+        return new PostRepository(client, cache);
     }
 
     public Flowable<Post> findAll() {
@@ -50,6 +57,10 @@ public class PostRepository {
 
     public Single<Post> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
+        return cache.getOrLoad(id, this::loadById);
+    }
+
+    private Single<Post> loadById(UUID id) {
         return client.preparedQuery("SELECT * FROM posts WHERE id=$1")
             .rxExecute(Tuple.of(id))
             .map(RowSet::iterator)
@@ -81,20 +92,23 @@ public class PostRepository {
         String sql = "UPDATE posts SET title=$1, content=$2 WHERE id=$3";
         return client.preparedQuery(sql)
             .rxExecute(Tuple.of(data.title(), data.content(), data.id()))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .doFinally(() -> cache.invalidate(data.id()));
     }
 
     public Single<Integer> deleteAll() {
         String sql = "DELETE FROM posts";
         return client.query(sql).rxExecute()
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .doFinally(cache::invalidateAll);
     }
 
     public Single<Integer> deleteById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
         String sql = "DELETE FROM posts WHERE id=$1";
         return client.preparedQuery(sql).rxExecute(Tuple.of(id))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .doFinally(() -> cache.invalidate(id));
     }
 
 }
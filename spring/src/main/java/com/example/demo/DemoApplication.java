@@ -1,6 +1,8 @@
 package com.example.demo;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.spi.VerticleFactory;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
@@ -11,6 +13,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ComponentScan
 public class DemoApplication {
@@ -20,13 +24,15 @@ public class DemoApplication {
         var vertx = context.getBean(Vertx.class);
         var factory = context.getBean(VerticleFactory.class);
 
-        // deploy MainVerticle via verticle identifier name
-        vertx.deployVerticle(factory.prefix() + ":" + MainVerticle.class.getName());
+        // deploy one MainVerticle instance per core via verticle identifier name, all of them share the same port
+        int instances = Integer.getInteger("instances", Runtime.getRuntime().availableProcessors());
+        vertx.deployVerticle(factory.prefix() + ":" + MainVerticle.class.getName(), new DeploymentOptions().setInstances(instances));
     }
 
     @Bean
     public Vertx vertx(VerticleFactory verticleFactory) {
-        Vertx vertx = Vertx.vertx();
+        // enable the Micrometer metrics, see `Metrics`
+        Vertx vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(Metrics.options()));
         vertx.registerVerticleFactory(verticleFactory);
         return vertx;
     }
@@ -38,10 +44,15 @@ public class DemoApplication {
             .setHost("localhost")
             .setDatabase("blogdb")
             .setUser("user")
-            .setPassword("password");
+            .setPassword("password")
+            .setPipeliningLimit(Integer.getInteger("pg.pipelining-limit", PgConnectOptions.DEFAULT_PIPELINING_LIMIT));
 
-        // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        // Pool Options, the pool is shared by all the MainVerticle instances,
+        // its connections are spread over `pg.event-loop-size` event loops.
+        PoolOptions poolOptions = new PoolOptions()
+            .setMaxSize(Integer.getInteger("pg.max-size", 5))
+            .setMaxWaitQueueSize(Integer.getInteger("pg.max-wait-queue-size", PoolOptions.DEFAULT_MAX_WAIT_QUEUE_SIZE))
+            .setEventLoopSize(Integer.getInteger("pg.event-loop-size", Runtime.getRuntime().availableProcessors()));
 
         // Create the pool from the data object
         return PgBuilder.pool()
@@ -50,4 +61,12 @@ public class DemoApplication {
             .using(vertx)
             .build();
     }
+
+    // disabled unless the `posts.cache.max-size` system property is set
+    @Bean
+    public PostCache postCache() {
+        int maxSize = Integer.getInteger("posts.cache.max-size", 0);
+        long ttl = Long.getLong("posts.cache.ttl-seconds", 60L);
+        return PostCache.create(maxSize, Duration.ofSeconds(ttl));
+    }
 }
@@ -8,12 +8,15 @@ import io.vertx.core.VerticleBase;
 import io.vertx.core.json.jackson.DatabindCodec;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.micrometer.PrometheusScrapingHandler;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Component
+@Scope("prototype") // a new verticle for every deployed instance
 public class MainVerticle extends VerticleBase {
     private static final Logger LOGGER = Logger.getLogger(MainVerticle.class.getName());
 
@@ -55,6 +58,9 @@ public class MainVerticle extends VerticleBase {
         // Configure routes
         var router = routes(postHandlers);
 
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx);
+
         // Create the HTTP server
         return vertx.createHttpServer()
             // Handle every request using the router
@@ -90,6 +96,9 @@ public class MainVerticle extends VerticleBase {
         router.put("/posts/:id").consumes("application/json").handler(BodyHandler.create()).handler(handlers::update);
         router.delete("/posts/:id").handler(handlers::delete);
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
         router.get("/hello").handler(rc -> rc.response().end("Hello from my route"));
 
         return router;
@@ -15,7 +15,8 @@ import java.util.stream.StreamSupport;
 public class PostRepository {
     private static final Logger LOGGER = Logger.getLogger(PostRepository.class.getName());
 
-    private static Function<Row, Post> MAPPER = (row) ->
+    // package private, used by the benchmarks module
+    static final Function<Row, Post> MAPPER = (row) ->
         new Post(
             row.getUUID("id"),
             row.getString("title"),
@@ -25,12 +26,26 @@ public class PostRepository {
 
 
     private final Pool client;
+    private final PostCache cache;
 
-    public PostRepository(Pool client) {
+    // concurrent identical reads share one query, see `SingleFlight`
+    // a load is only shared within the cache generation it started in, see `findById`
+    private record ByIdKey(UUID id, long generation) {
+    }
+
+    private final SingleFlight<ByIdKey, Post> byId = SingleFlight.create("posts.findById");
+    private final SingleFlight<String, List<Post>> all = SingleFlight.create("posts.findAll");
+
+    public PostRepository(Pool client, PostCache cache) {
         this.client = client;
+        this.cache = cache;
     }
 
     public Future<List<Post>> findAll() {
+        return all.execute("", key -> loadAll());
+    }
+
+    private Future<List<Post>> loadAll() {
         String sql = "SELECT * FROM posts ORDER BY id ASC";
         return client.query(sql)
             .execute()
@@ -43,6 +58,12 @@ public class PostRepository {
 
     public Future<Post> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
+        // a caller missing right after an invalidation must not join a load which started before the write, it would cache
+        // the old post under the new generation
+        return cache.getOrLoad(id, key -> byId.execute(new ByIdKey(key, cache.generation()), k -> loadById(k.id())));
+    }
+
+    private Future<Post> loadById(UUID id) {
         String sql = "SELECT * FROM posts WHERE id=$1";
         return client.preparedQuery(sql).execute(Tuple.of(id))
             .map(RowSet::iterator)
@@ -78,20 +99,23 @@ public class PostRepository {
         String sql = "UPDATE posts SET title=$1, content=$2 WHERE id=$3";
         return client.preparedQuery(sql)
             .execute(Tuple.of(data.title(), data.content(), data.id()))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> cache.invalidate(data.id()));
     }
 
     public Future<Integer> deleteAll() {
         String sql = "DELETE FROM posts";
         return client.query(sql).execute()
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> cache.invalidateAll());
     }
 
     public Future<Integer> deleteById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
         String sql = "DELETE FROM posts WHERE id=$1";
         return client.preparedQuery(sql).execute(Tuple.of(id))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> cache.invalidate(id));
     }
 
 }
@@ -0,0 +1,185 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admission control of the requests using the pg pool.
+ * <p>
+ * Every request above the pool size waits in the pool queue for a connection. Once {@code maxQueue} requests are
+ * waiting, a new request is rejected at once with a 503 and a {@code Retry-After} header, instead of queueing until
+ * the client times out and making the accepted requests slower.
+ * <p>
+ * When adaptive, the in-flight limit follows an AIMD rule between the pool size and the pool size plus
+ * {@code maxQueue}: it shrinks by 10% on a response slower than the target latency or a 5xx, and grows by one
+ * request per limit worth of fast responses while it is fully used. The bulk imports and the exports hold their slot, and
+ * their connection, for as long as the client streams, their latency is not sampled, only their 5xx are.
+ * <p>
+ * Every MainVerticle instance owns its handler and runs it on its own event loop, so the counters are not
+ * synchronized. The handler only sees the requests of its instance: when the instances share one pool, see
+ * `pg.shared`, each of them is given its share of the pool size and of {@code maxQueue}, so that all the instances
+ * together do not admit more than the pool size plus {@code maxQueue} requests. A handler created with
+ * {@link #disabled()} admits everything.
+ */
+public class AdmissionControl implements Handler<RoutingContext> {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    // the streaming routes, their latency depends on the size of the stream and on the client
+    private static final Set<String> STREAMING_ROUTES = Set.of("/posts:bulk", "/posts/export");
+
+    private static final class RouteStats {
+        private final boolean streaming;
+        private int inFlight;
+        private Counter rejected;
+
+        private RouteStats(boolean streaming) {
+            this.streaming = streaming;
+        }
+    }
+
+    private final boolean enabled;
+    private final int poolSize;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final long targetLatencyNanos;
+    private final String retryAfter;
+    private final Map<String, RouteStats> routes = new HashMap<>();
+
+    private MeterRegistry registry;
+    private double limit;
+    private int inFlight;
+
+    private AdmissionControl(boolean enabled, int poolSize, int maxQueue, boolean adaptive, Duration targetLatency, Duration retryAfter) {
+        this.enabled = enabled;
+        this.poolSize = poolSize;
+        this.maxLimit = poolSize + maxQueue;
+        this.adaptive = adaptive;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.limit = maxLimit;
+    }
+
+    /**
+     * @param poolSize      the max size of the pg pool, or the share of this instance of a shared pool.
+     * @param maxQueue      the max number of requests waiting for a connection, or the share of this instance.
+     * @param adaptive      adapt the limit to the latency of the responses.
+     * @param targetLatency the latency above which the adaptive limit shrinks.
+     * @param retryAfter    the delay suggested to the rejected clients.
+     */
+    public static AdmissionControl create(int poolSize, int maxQueue, boolean adaptive, Duration targetLatency, Duration retryAfter) {
+        var admissionControl = new AdmissionControl(true, poolSize, maxQueue, adaptive, targetLatency, retryAfter);
+        admissionControl.registerMetrics();
+        return admissionControl;
+    }
+
+    public static AdmissionControl disabled() {
+        return new AdmissionControl(false, 0, 0, false, Duration.ZERO, Duration.ZERO);
+    }
+
+    @Override
+    public void handle(RoutingContext rc) {
+        if (!enabled) {
+            rc.next();
+            return;
+        }
+
+        var pattern = patternOf(rc);
+        var route = routes.computeIfAbsent(
+            rc.request().method().name() + " " + pattern,
+            key -> newRouteStats(key, STREAMING_ROUTES.contains(pattern))
+        );
+        if (inFlight >= (int) limit) {
+            if (route.rejected != null) {
+                route.rejected.increment();
+            }
+            rc.response()
+                .putHeader("Retry-After", retryAfter)
+                .setStatusCode(503)
+                .end();
+            return;
+        }
+
+        inFlight++;
+        route.inFlight++;
+        long start = System.nanoTime();
+        rc.addEndHandler(ar -> {
+            inFlight--;
+            route.inFlight--;
+            boolean failed = ar.failed() || rc.response().getStatusCode() >= 500;
+            if (adaptive && (failed || !route.streaming)) {
+                adjust(System.nanoTime() - start, failed);
+            }
+        });
+        rc.next();
+    }
+
+    private void adjust(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > targetLatencyNanos) {
+            limit = Math.max(poolSize, limit * BACKOFF_RATIO);
+        } else if (inFlight + 1 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    // the route pattern, the handler runs before the actual route is matched
+    private static String patternOf(RoutingContext rc) {
+        var path = rc.normalizedPath();
+        return switch (path) {
+            case "/posts", "/posts:bulk", "/posts/export" -> path;
+            default -> path.startsWith("/posts/") ? "/posts/:id" : "/posts*";
+        };
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight;
+    }
+
+    // the requests of this instance waiting for a connection, beyond its share of the pool when it is shared
+    public int queued() {
+        return Math.max(0, inFlight - poolSize);
+    }
+
+    private void registerMetrics() {
+        registry = BackendRegistries.getDefaultNow();
+        if (registry == null) {
+            return;
+        }
+        var thread = Thread.currentThread().getName();
+        Gauge.builder("posts.admission.limit", this, AdmissionControl::limit).tag("thread", thread).register(registry);
+        Gauge.builder("posts.admission.inflight", this, AdmissionControl::inFlight).tag("thread", thread).register(registry);
+        Gauge.builder("posts.admission.queued", this, AdmissionControl::queued).tag("thread", thread).register(registry);
+    }
+
+    private RouteStats newRouteStats(String route, boolean streaming) {
+        var stats = new RouteStats(streaming);
+        if (registry != null) {
+            var thread = Thread.currentThread().getName();
+            Gauge.builder("posts.admission.route.inflight", stats, s -> s.inFlight)
+                .tags("route", route, "thread", thread)
+                .register(registry);
+            stats.rejected = Counter.builder("posts.admission.rejected")
+                .tags("route", route, "thread", thread)
+                .register(registry);
+        }
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionControl{enabled=" + enabled + ", limit=" + limit() + ", inFlight=" + inFlight + ", queued=" + queued() + "}";
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.DecodeException;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The handlers of a MainVerticle deployed with the `VIRTUAL_THREAD` threading model, see `DemoApplication`.
+ * <p>
+ * The CRUD handlers wait for the repository with {@link Future#await()}, which parks the virtual thread instead of
+ * blocking a carrier, and read as plain sequential code. The list, stream and bulk handlers are inherited, they are
+ * already written against the streams.
+ */
+class BlockingPostsHandler extends PostsHandler {
+    private static final Logger LOGGER = Logger.getLogger(BlockingPostsHandler.class.getSimpleName());
+
+    private BlockingPostsHandler(PostRepository posts, ResponseCache responseCache) {
+        super(posts, responseCache);
+    }
+
+    public static BlockingPostsHandler create(PostRepository posts, ResponseCache responseCache) {
+        posts.writeHandler(id -> responseCache.invalidateAll());
+        return new BlockingPostsHandler(posts, responseCache);
+    }
+
+    @Override
+    public void get(RoutingContext rc) {
+        var id = UUID.fromString(rc.pathParam("id"));
+        Post post;
+        try {
+            post = posts.findById(id).await();
+        } catch (Exception e) {
+            rc.fail(e);
+            return;
+        }
+
+        var etag = etag(post.version());
+        var response = rc.response().putHeader("ETag", etag);
+        if (noneMatch(rc.request().getHeader("If-None-Match"), etag)) {
+            response.end(PostCodec.encode(post));
+        } else {
+            response.setStatusCode(304).end();
+        }
+    }
+
+    @Override
+    public void save(RoutingContext rc) {
+        CreatePostCommand form;
+        try {
+            form = PostCodec.decodeCommand(rc.body().buffer());
+        } catch (DecodeException e) {
+            rc.fail(400, e);
+            return;
+        }
+        LOGGER.log(Level.INFO, "request body: {0}", form);
+
+        try {
+            var savedId = posts.save(Post.of(form.title(), form.content())).await();
+            rc.response()
+                .putHeader("Location", "/posts/" + savedId)
+                .setStatusCode(201)
+                .end();
+        } catch (Exception e) {
+            rc.fail(e);
+        }
+    }
+
+    @Override
+    public void update(RoutingContext rc) {
+        var uuid = UUID.fromString(rc.pathParam("id"));
+        CreatePostCommand form;
+        try {
+            form = PostCodec.decodeCommand(rc.body().buffer());
+        } catch (DecodeException e) {
+            rc.fail(400, e);
+            return;
+        }
+        var version = matchedVersion(rc.request().getHeader("If-Match"));
+
+        try {
+            var newVersion = posts.update(new Post(uuid, form.title(), form.content(), null, version)).await();
+            rc.response().putHeader("ETag", etag(newVersion)).setStatusCode(204).end();
+        } catch (Exception e) {
+            rc.fail(statusOf(e), e);
+        }
+    }
+
+    @Override
+    public void delete(RoutingContext rc) {
+        var uuid = UUID.fromString(rc.pathParam("id"));
+        var version = matchedVersion(rc.request().getHeader("If-Match"));
+
+        try {
+            posts.deleteById(uuid, version).await();
+            rc.response().setStatusCode(204).end();
+        } catch (Exception e) {
+            rc.fail(statusOf(e), e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.micrometer.backends.BackendRegistries;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import io.vertx.sqlclient.Pool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spread the invalidations of the post caches to the other MainVerticle instances, in this process or, when Vert.x
+ * is clustered, in the other nodes.
+ * <p>
+ * With the event bus transport, every write publishes a compact `origin,id` message to {@link #ADDRESS}, `*` stands
+ * for all the posts. An instance skips its own messages, its caches are already invalidated by the write.
+ * <p>
+ * With the notify transport, the `posts_changed` triggers of the database send the comma separated ids of the posts
+ * written by every statement, or `*` on a truncate, on the {@link #CHANNEL} channel, whatever wrote them, and nothing
+ * is published by the instances. The triggers are installed by {@link #install(Pool)} from {@link #TRIGGERS}, not by
+ * `pg-initdb.d/init.sql`, so the writes pay for the notifications with this transport only. The notifications sent
+ * while the subscriber is reconnecting are lost, all the posts are invalidated once it is subscribed again.
+ * <p>
+ * A handler created with {@link #disabled()} publishes and receives nothing.
+ */
+public class CacheInvalidation {
+    private static final Logger LOGGER = Logger.getLogger(CacheInvalidation.class.getName());
+
+    public static final String ADDRESS = "posts.invalidations";
+    public static final String CHANNEL = "posts_changed";
+    public static final String TRIGGERS = "sql/posts_changed.sql";
+    private static final String ALL = "*";
+
+    public enum Transport {
+        NONE, EVENT_BUS, NOTIFY
+    }
+
+    private final Vertx vertx;
+    private final Transport transport;
+    private final PgConnectOptions connectOptions;
+    // tells the messages of this instance apart
+    private final String origin = UUID.randomUUID().toString();
+    private final Counter published;
+    private final Counter received;
+
+    private Handler<UUID> handler = id -> {
+    };
+    private MessageConsumer<String> consumer;
+    private PgSubscriber subscriber;
+
+    private CacheInvalidation(Vertx vertx, Transport transport, PgConnectOptions connectOptions) {
+        this.vertx = vertx;
+        this.transport = transport;
+        this.connectOptions = connectOptions;
+        var registry = transport == Transport.NONE ? null : BackendRegistries.getDefaultNow();
+        var tag = transport.name().toLowerCase(Locale.ROOT);
+        this.published = registry == null ? null : Counter.builder("posts.invalidations.published").tag("transport", tag).register(registry);
+        this.received = registry == null ? null : Counter.builder("posts.invalidations.received").tag("transport", tag).register(registry);
+    }
+
+    public static CacheInvalidation disabled() {
+        return new CacheInvalidation(null, Transport.NONE, null);
+    }
+
+    public static CacheInvalidation eventBus(Vertx vertx) {
+        return new CacheInvalidation(vertx, Transport.EVENT_BUS, null);
+    }
+
+    public static CacheInvalidation notify(Vertx vertx, PgConnectOptions connectOptions) {
+        return new CacheInvalidation(vertx, Transport.NOTIFY, connectOptions);
+    }
+
+    /**
+     * Register the handler applying the invalidations of the other instances to the local caches,
+     * with the id of the written post, or null when several posts may have changed.
+     */
+    public CacheInvalidation handler(Handler<UUID> handler) {
+        this.handler = handler;
+        return this;
+    }
+
+    public Future<Void> start() {
+        return switch (transport) {
+            case NONE -> Future.succeededFuture();
+            case EVENT_BUS -> {
+                consumer = vertx.eventBus().consumer(ADDRESS, message -> {
+                    var body = message.body();
+                    int separator = body.indexOf(',');
+                    if (separator < 0 || body.startsWith(origin + ",")) {
+                        return;
+                    }
+                    var id = body.substring(separator + 1);
+                    apply(id.equals(ALL) ? null : UUID.fromString(id));
+                });
+                yield consumer.completion();
+            }
+            case NOTIFY -> {
+                subscriber = PgSubscriber.subscriber(vertx, connectOptions)
+                    .reconnectPolicy(retries -> Math.min(5000L, 100L * (retries + 1)));
+                subscriber.channel(CHANNEL)
+                    .subscribeHandler(v -> apply(null))
+                    .handler(payload -> {
+                        if (payload.equals(ALL)) {
+                            apply(null);
+                            return;
+                        }
+                        List<UUID> ids;
+                        try {
+                            ids = Arrays.stream(payload.split(",")).map(UUID::fromString).toList();
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.log(Level.WARNING, "Invalid {0} payload: {1}", new Object[]{CHANNEL, payload});
+                            apply(null);
+                            return;
+                        }
+                        ids.forEach(this::apply);
+                    });
+                yield subscriber.connect();
+            }
+        };
+    }
+
+    /**
+     * Install the triggers feeding the notify transport, once per process, nothing is installed with the other
+     * transports.
+     */
+    public Future<Void> install(Pool pool) {
+        if (transport != Transport.NOTIFY) {
+            return Future.succeededFuture();
+        }
+        var first = vertx.sharedData().getLocalMap(CacheInvalidation.class.getName())
+            .putIfAbsent("triggers.installed", true) == null;
+        if (!first) {
+            return Future.succeededFuture();
+        }
+        return vertx.fileSystem().readFile(TRIGGERS)
+            .compose(script -> pool.query(script.toString()).execute())
+            .onSuccess(rs -> LOGGER.log(Level.INFO, "installed the {0} triggers", CHANNEL))
+            .mapEmpty();
+    }
+
+    private void apply(UUID id) {
+        if (received != null) {
+            received.increment();
+        }
+        handler.handle(id);
+    }
+
+    // publish the invalidation of a written post, or of all the posts when the id is null
+    public void publish(UUID id) {
+        if (transport != Transport.EVENT_BUS) {
+            return;
+        }
+        vertx.eventBus().publish(ADDRESS, origin + "," + (id == null ? ALL : id.toString()));
+        if (published != null) {
+            published.increment();
+        }
+    }
+
+    public Future<Void> close() {
+        if (consumer != null) {
+            return consumer.unregister();
+        }
+        if (subscriber != null) {
+            return subscriber.close();
+        }
+        return Future.succeededFuture();
+    }
+}
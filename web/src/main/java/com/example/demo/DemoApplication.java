@@ -0,0 +1,55 @@
+package com.example.demo;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.ThreadingModel;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deploy one MainVerticle instance per core, all of them listening on the same port.
+ * <p>
+ * The number of instances can be set with the `instances` system property,
+ * and an optional JSON config file(see `MainVerticle.pgPool`) can be passed as the first argument.
+ * <p>
+ * With `"threadingModel": "VIRTUAL_THREAD"` in the config, the instances run on virtual threads and handle the
+ * requests with the blocking style `BlockingPostsHandler`.
+ * <p>
+ * With `"clustered": true`, Vert.x joins the cluster of the cluster manager found on the classpath(Hazelcast), the
+ * event bus and so the cache invalidations(see `CacheInvalidation`) span all the nodes.
+ */
+public class DemoApplication {
+    private static final Logger LOGGER = Logger.getLogger(DemoApplication.class.getName());
+
+    public static void main(String[] args) throws IOException {
+        int instances = Integer.getInteger("instances", Runtime.getRuntime().availableProcessors());
+        var config = args.length > 0 ? new JsonObject(Files.readString(Path.of(args[0]))) : new JsonObject();
+
+        var threadingModel = ThreadingModel.valueOf(config.getString("threadingModel", ThreadingModel.EVENT_LOOP.name()));
+        var options = new DeploymentOptions()
+            .setInstances(instances)
+            .setThreadingModel(threadingModel)
+            .setConfig(config);
+
+        var builder = Vertx.builder().with(new VertxOptions().setMetricsOptions(Metrics.options()));
+        var vertxFuture = config.getBoolean("clustered", false)
+            ? builder.buildClustered()
+            : Future.succeededFuture(builder.build());
+        vertxFuture
+            .onFailure(throwable -> LOGGER.log(Level.SEVERE, "Failed to start Vert.x: " + throwable.getMessage()))
+            .onSuccess(vertx -> vertx.deployVerticle(MainVerticle.class, options)
+                .onSuccess(id -> LOGGER.log(Level.INFO, "deployed {0} {1} instances of MainVerticle: {2}", new Object[]{instances, threadingModel, id}))
+                .onFailure(throwable -> {
+                    LOGGER.log(Level.SEVERE, "Failed to deploy MainVerticle: " + throwable.getMessage());
+                    vertx.close();
+                })
+            );
+    }
+}
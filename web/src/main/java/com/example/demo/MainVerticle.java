@@ -5,11 +5,13 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.vertx.core.Future;
 import io.vertx.core.MultiMap;
+import io.vertx.core.ThreadingModel;
 import io.vertx.core.VerticleBase;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.jackson.DatabindCodec;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import io.vertx.pgclient.PgBuilder;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.sqlclient.Pool;
@@ -17,6 +19,7 @@ import io.vertx.sqlclient.PoolOptions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -25,6 +28,10 @@ public class MainVerticle extends VerticleBase {
 
     private final static Logger LOGGER = Logger.getLogger(MainVerticle.class.getName());
 
+    private static final int DEFAULT_POOL_MAX_SIZE = 5;
+
+    private CacheInvalidation invalidation;
+
     static {
         LOGGER.info("Customizing the built-in jackson ObjectMapper...");
         var objectMapper = DatabindCodec.mapper();
@@ -42,22 +49,46 @@ public class MainVerticle extends VerticleBase {
         //setupLogging();
 
         //Create a PgPool instance
-        var pgPool = pgPool();
+        var pgPool = pgPool(config().getJsonObject("pg", new JsonObject()));
+
+        //Creating the optional post cache, disabled unless `cache.maxSize` is configured
+        var postCache = postCache();
 
-        //Creating PostRepository
-        var postRepository = PostRepository.create(pgPool);
+        //Creating PostRepository, the inserts are batched when `writeBatch.maxRows` is configured
+        var postRepository = PostRepository.create(pools(pgPool), postCache);
+        batchInserts(postRepository);
 
-        //Creating PostHandler
-        var postHandlers = PostsHandler.create(postRepository);
+        //Creating PostHandler, the list response cache is disabled unless `responseCache.maxEntries` is configured,
+        //and when the reads go to a replica.
+        //The blocking variant when deployed on virtual threads, see `DemoApplication`
+        var responseCache = responseCache(postRepository);
+        var postHandlers = context.threadingModel() == ThreadingModel.VIRTUAL_THREAD
+            ? BlockingPostsHandler.create(postRepository, responseCache)
+            : PostsHandler.create(postRepository, responseCache);
+
+        // Apply the writes of the other instances to the local caches and publish ours,
+        // disabled unless `invalidation.transport` is configured
+        invalidation = cacheInvalidation()
+            .handler(id -> {
+                if (id == null) {
+                    postCache.invalidateAll();
+                } else {
+                    postCache.invalidate(id);
+                }
+                responseCache.invalidateAll();
+            });
+        postRepository.writeHandler(invalidation::publish);
 
-        // Initializing the sample data
-        var initializer = DataInitializer.create(pgPool);
+        // Configure routes, the admission control is disabled unless `admission.maxQueue` is configured
+        var router = routes(postHandlers, admissionControl());
 
-        // Configure routes
-        var router = routes(postHandlers);
+        // Report the lag of the event loop of this instance
+        Metrics.monitorEventLoop(vertx);
 
-        // Create the HTTP server
-        return initializer.run()
+        // Create the HTTP server, all the deployed instances share the same port
+        return initializeData(pgPool)
+            .compose(v -> invalidation.install(pgPool))
+            .compose(v -> invalidation.start())
             .compose(v -> vertx.createHttpServer()
                 // Handle every request using the router
                 .requestHandler(router)
@@ -71,18 +102,25 @@ public class MainVerticle extends VerticleBase {
 
     @Override
     public Future<?> stop() throws Exception {
-        return super.stop();
+        return invalidation == null ? super.stop() : invalidation.close();
     }
 
     //create routes
-    private Router routes(PostsHandler handlers) {
+    private Router routes(PostsHandler handlers, AdmissionControl admissionControl) {
 
         // Create a Router
         Router router = Router.router(vertx);
+        // shed the load before the requests queue for a pg connection, the streams are admitted too, they hold a
+        // connection, but their latency does not shrink the adaptive limit
+        router.route("/posts*").handler(admissionControl);
         // register BodyHandler globally.
         //router.route().handler(BodyHandler.create());
         router.get("/posts").produces("application/json").handler(handlers::all);
         router.post("/posts").consumes("application/json").handler(BodyHandler.create()).handler(handlers::save);
+        // no BodyHandler here, the NDJSON body is streamed. A regex route keeps `:bulk` from being read as a path param.
+        router.postWithRegex("/posts:bulk").consumes("application/x-ndjson").handler(handlers::bulk);
+        // declared before `/posts/:id`, the export is resumable with `Last-Event-ID` or `?since=`
+        router.get("/posts/export").produces("text/event-stream").produces("application/x-ndjson").handler(handlers::export);
         router.get("/posts/:id").produces("application/json").handler(handlers::get)
             .failureHandler(frc -> {
                 Throwable failure = frc.failure();
@@ -94,6 +132,9 @@ public class MainVerticle extends VerticleBase {
         router.put("/posts/:id").consumes("application/json").handler(BodyHandler.create()).handler(handlers::update);
         router.delete("/posts/:id").handler(handlers::delete);
 
+        // the Prometheus scrape endpoint, see `Metrics`
+        router.get("/metrics").handler(PrometheusScrapingHandler.create());
+
         // Mount the handler for all incoming requests at every path and HTTP method
         router.get("/hello").handler(context -> {
             // Get the address of the request
@@ -112,19 +153,116 @@ public class MainVerticle extends VerticleBase {
         return router;
     }
 
-    private Pool pgPool() {
-        PgConnectOptions connectOptions = new PgConnectOptions()
-            .setPort(5432)
-            .setHost("localhost")
-            .setDatabase("blogdb")
-            .setUser("user")
-            .setPassword("password");
-//            .setSslOptions(new ClientSSLOptions()
-//                .setTrustOptions(new PemTrustOptions().addCertPath(pathToCert))
-//            );
+    private AdmissionControl admissionControl() {
+        var admissionConfig = config().getJsonObject("admission", new JsonObject());
+        int maxQueue = admissionConfig.getInteger("maxQueue", -1);
+        if (maxQueue < 0) {
+            return AdmissionControl.disabled();
+        }
+        var pgConfig = config().getJsonObject("pg", new JsonObject());
+        int poolSize = pgConfig.getInteger("maxSize", DEFAULT_POOL_MAX_SIZE);
+        // a shared pool serves the requests of all the instances, every instance admits its share of them
+        if (pgConfig.getBoolean("shared", false)) {
+            int instances = Math.max(1, context.getInstanceCount());
+            poolSize = Math.max(1, poolSize / instances);
+            maxQueue = maxQueue / instances;
+        }
+        boolean adaptive = admissionConfig.getBoolean("adaptive", false);
+        long targetLatency = admissionConfig.getLong("targetLatencyMillis", 100L);
+        long retryAfter = admissionConfig.getLong("retryAfterSeconds", 1L);
+        LOGGER.log(Level.INFO, "admission control: poolSize={0}, maxQueue={1}, adaptive={2}, targetLatencyMillis={3}",
+            new Object[]{poolSize, maxQueue, adaptive, targetLatency});
+        return AdmissionControl.create(poolSize, maxQueue, adaptive, Duration.ofMillis(targetLatency), Duration.ofSeconds(retryAfter));
+    }
+
+    private void batchInserts(PostRepository postRepository) {
+        var batchConfig = config().getJsonObject("writeBatch", new JsonObject());
+        int maxRows = batchConfig.getInteger("maxRows", 0);
+        if (maxRows <= 1) {
+            return;
+        }
+        long maxDelay = batchConfig.getLong("maxDelayMillis", 2L);
+        LOGGER.log(Level.INFO, "write batch: maxRows={0}, maxDelayMillis={1}", new Object[]{maxRows, maxDelay});
+        postRepository.batchInserts(vertx, maxRows, Duration.ofMillis(maxDelay));
+    }
+
+    /**
+     * The `invalidation.transport` of the deployment config, `EVENT_BUS` to publish the invalidations on the event bus,
+     * clustered when `DemoApplication` is, or `NOTIFY` to receive them from the `posts_changed` triggers of Postgres,
+     * installed on start.
+     */
+    private CacheInvalidation cacheInvalidation() {
+        var invalidationConfig = config().getJsonObject("invalidation", new JsonObject());
+        var transport = CacheInvalidation.Transport.valueOf(invalidationConfig.getString("transport", "NONE"));
+        LOGGER.log(Level.INFO, "cache invalidation: transport={0}", transport);
+        return switch (transport) {
+            case NONE -> CacheInvalidation.disabled();
+            case EVENT_BUS -> CacheInvalidation.eventBus(vertx);
+            case NOTIFY -> CacheInvalidation.notify(vertx, connectOptions(config().getJsonObject("pg", new JsonObject())));
+        };
+    }
+
+    private ResponseCache responseCache(PostRepository postRepository) {
+        var cacheConfig = config().getJsonObject("responseCache", new JsonObject());
+        int maxEntries = cacheConfig.getInteger("maxEntries", 0);
+        // the responses are kept until the next write, a response read from a lagging replica would outlive the
+        // invalidation of its posts
+        if (maxEntries > 0 && postRepository.readsReplica()) {
+            LOGGER.log(Level.WARNING, "response cache disabled, the reads go to a replica");
+            return ResponseCache.disabled();
+        }
+        int maxBytes = cacheConfig.getInteger("maxBytes", 1024 * 1024);
+        LOGGER.log(Level.INFO, "response cache: maxEntries={0}, maxBytes={1}", new Object[]{maxEntries, maxBytes});
+        return ResponseCache.create(maxEntries, maxBytes);
+    }
+
+    // Initializing the sample data, only once when several instances are deployed
+    private Future<Void> initializeData(Pool pgPool) {
+        var first = vertx.sharedData().getLocalMap(MainVerticle.class.getName())
+            .putIfAbsent("data.initialized", true) == null;
+        return first ? DataInitializer.create(pgPool).run() : Future.succeededFuture();
+    }
+
+    /**
+     * Route the reads to a replica when the `replica` object of the deployment config is set, its keys override the
+     * `pg` ones, e.g. `{"replica": {"port": 5433}}`. The reads fall back to the primary while the replica is down or
+     * lags more than `replica.maxLagMillis` behind.
+     */
+    private PoolRouter pools(Pool primary) {
+        var replicaConfig = config().getJsonObject("replica");
+        if (replicaConfig == null) {
+            return PoolRouter.single(primary);
+        }
+        // a shared replica pool must not take the name of the shared primary pool
+        var pgConfig = config().getJsonObject("pg", new JsonObject()).copy()
+            .put("poolName", "posts-replica-pool")
+            .mergeIn(replicaConfig);
+        long checkInterval = replicaConfig.getLong("checkIntervalMillis", 1000L);
+        long maxLag = replicaConfig.getLong("maxLagMillis", 1000L);
+        LOGGER.log(Level.INFO, "replica: checkIntervalMillis={0}, maxLagMillis={1}", new Object[]{checkInterval, maxLag});
+        return PoolRouter.create(vertx, primary, pgPool(pgConfig), Duration.ofMillis(checkInterval), Duration.ofMillis(maxLag));
+    }
+
+    /**
+     * Create a pool from the `pg` object of the deployment config, or the `replica` one.
+     * <p>
+     * By default every MainVerticle instance owns a pool whose connections run on the instance event loop.
+     * When `pg.shared` is true, all the instances use the same named pool spread over `pg.eventLoopSize` event loops.
+     */
+    private Pool pgPool(JsonObject pgConfig) {
+        var connectOptions = connectOptions(pgConfig);
 
         // Pool Options
-        PoolOptions poolOptions = new PoolOptions().setMaxSize(5);
+        PoolOptions poolOptions = new PoolOptions()
+            .setMaxSize(pgConfig.getInteger("maxSize", DEFAULT_POOL_MAX_SIZE))
+            .setMaxWaitQueueSize(pgConfig.getInteger("maxWaitQueueSize", PoolOptions.DEFAULT_MAX_WAIT_QUEUE_SIZE));
+        if (pgConfig.getBoolean("shared", false)) {
+            poolOptions
+                .setShared(true)
+                .setName(pgConfig.getString("poolName", "posts-pool"))
+                .setEventLoopSize(pgConfig.getInteger("eventLoopSize", Runtime.getRuntime().availableProcessors()));
+        }
+        LOGGER.log(Level.INFO, "pg pool options: {0}", poolOptions.toJson());
 
         // Create the pool from the data object
         return PgBuilder.pool()
@@ -134,6 +272,27 @@ public class MainVerticle extends VerticleBase {
             .build();
     }
 
+    private static PgConnectOptions connectOptions(JsonObject pgConfig) {
+        return new PgConnectOptions()
+            .setPort(pgConfig.getInteger("port", 5432))
+            .setHost(pgConfig.getString("host", "localhost"))
+            .setDatabase(pgConfig.getString("database", "blogdb"))
+            .setUser(pgConfig.getString("user", "user"))
+            .setPassword(pgConfig.getString("password", "password"))
+            .setPipeliningLimit(pgConfig.getInteger("pipeliningLimit", PgConnectOptions.DEFAULT_PIPELINING_LIMIT));
+//            .setSslOptions(new ClientSSLOptions()
+//                .setTrustOptions(new PemTrustOptions().addCertPath(pathToCert))
+//            );
+    }
+
+    private PostCache postCache() {
+        var cacheConfig = config().getJsonObject("cache", new JsonObject());
+        int maxSize = cacheConfig.getInteger("maxSize", 0);
+        long ttl = cacheConfig.getLong("ttlSeconds", 60L);
+        LOGGER.log(Level.INFO, "post cache: maxSize={0}, ttlSeconds={1}", new Object[]{maxSize, ttl});
+        return PostCache.create(maxSize, Duration.ofSeconds(ttl));
+    }
+
     /**
      * Configure logging from logging.properties file.
      * When using custom JUL logging properties, named it to vertx-default-jul-vertx-default-jul-logging.properties
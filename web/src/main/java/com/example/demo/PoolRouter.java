@@ -0,0 +1,166 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.micrometer.backends.BackendRegistries;
+import io.vertx.sqlclient.Pool;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Route the reads to a replica pool and the writes to the primary pool.
+ * <p>
+ * Read your writes: once a request has written through {@link #write()}, its following reads go to the primary too.
+ * The flag is a local of the request's duplicated Vert.x context, it is dropped with the request, the other requests
+ * run on their own duplicated contexts and do not see it. A write on the verticle context sticks the reads of the
+ * verticle context only, e.g. of its timers. Off a Vert.x context, there is nothing to stick to.
+ * <p>
+ * The replica is checked every {@code checkInterval}, the reads fall back to the primary while the replica is down, is
+ * not a standby streaming from its primary, or lags behind the primary by more than {@code maxLag}. A router created with {@link #single(Pool)} has no replica.
+ */
+public class PoolRouter {
+    private static final Logger LOGGER = Logger.getLogger(PoolRouter.class.getName());
+
+    private static final String STICKY = PoolRouter.class.getName() + ".sticky";
+
+    // whether the server is a standby streaming from its primary, a standby whose WAL receiver is disconnected has no
+    // `pg_stat_wal_receiver` row, and its replay lag, 0 when it has replayed all it received, null when it has not
+    // replayed any transaction yet
+    private static final String LAG_SQL = "SELECT pg_is_in_recovery() AS standby, " +
+        "EXISTS (SELECT 1 FROM pg_stat_wal_receiver) AS streaming, " +
+        "CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+        "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END AS lag";
+
+    // the routers of all the MainVerticle instances, the replica is healthy when one of them reads from it
+    private static final Set<PoolRouter> ROUTERS = ConcurrentHashMap.newKeySet();
+
+    private final Pool primary;
+    private final Pool replica;
+    private final long maxLagMillis;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    private volatile boolean replicaHealthy;
+
+    private PoolRouter(Pool primary, Pool replica, Duration maxLag) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        var registry = replica == null ? null : BackendRegistries.getDefaultNow();
+        this.primaryReads = registry == null ? null : Counter.builder("pg.reads").tag("pool", "primary").register(registry);
+        this.replicaReads = registry == null ? null : Counter.builder("pg.reads").tag("pool", "replica").register(registry);
+        if (registry != null) {
+            ROUTERS.add(this);
+            // registered once, the following registrations return the same gauge
+            Gauge.builder("pg.replica.healthy", ROUTERS, routers -> routers.stream().anyMatch(PoolRouter::isReplicaHealthy) ? 1 : 0)
+                .register(registry);
+        }
+    }
+
+    public static PoolRouter single(Pool pool) {
+        return new PoolRouter(pool, null, Duration.ZERO);
+    }
+
+    /**
+     * @param checkInterval the interval of the replica health checks.
+     * @param maxLag        the replication lag above which the replica is not read.
+     */
+    public static PoolRouter create(Vertx vertx, Pool primary, Pool replica, Duration checkInterval, Duration maxLag) {
+        var router = new PoolRouter(primary, replica, maxLag);
+        router.check();
+        vertx.setPeriodic(checkInterval.toMillis(), id -> router.check());
+        return router;
+    }
+
+    // the pool of the writes, the current request reads from the primary from now on
+    public Pool write() {
+        stick();
+        return primary;
+    }
+
+    // the current request reads from the primary from now on
+    public void stick() {
+        Context context = Vertx.currentContext();
+        if (replica != null && context != null) {
+            context.putLocal(STICKY, Boolean.TRUE);
+        }
+    }
+
+    // true when the current request wrote, and so reads from the primary
+    public boolean isSticky() {
+        if (replica == null) {
+            return false;
+        }
+        Context context = Vertx.currentContext();
+        return context != null && context.getLocal(STICKY) != null;
+    }
+
+    public Pool read() {
+        if (replica == null) {
+            return primary;
+        }
+        if (!replicaHealthy || isSticky()) {
+            count(primaryReads);
+            return primary;
+        }
+        count(replicaReads);
+        return replica;
+    }
+
+    private static void count(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private Future<Void> check() {
+        return replica.query(LAG_SQL).execute()
+            .timeout(Math.max(1000, maxLagMillis), TimeUnit.MILLISECONDS)
+            .map(rs -> {
+                var row = rs.iterator().next();
+                // a server which is not a standby, e.g. a promoted or an independent one, does not hold the primary data
+                if (!row.getBoolean("standby") || !row.getBoolean("streaming")) {
+                    return false;
+                }
+                Double lag = row.getDouble("lag");
+                return lag != null && lag * 1000 <= maxLagMillis;
+            })
+            .otherwise(throwable -> {
+                LOGGER.log(Level.FINE, "replica check failed: {0}", throwable.getMessage());
+                return false;
+            })
+            .onSuccess(healthy -> {
+                if (healthy != replicaHealthy) {
+                    LOGGER.log(Level.INFO, "replica is {0}", healthy ? "up, reading from the replica" : "down, reading from the primary");
+                }
+                replicaHealthy = healthy;
+            })
+            .mapEmpty();
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    // the max staleness of a replica read
+    public Duration maxLag() {
+        return Duration.ofMillis(maxLagMillis);
+    }
+
+    public boolean isReplicaHealthy() {
+        return replicaHealthy;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolRouter{replica=" + (replica != null) + ", replicaHealthy=" + replicaHealthy + "}";
+    }
+}
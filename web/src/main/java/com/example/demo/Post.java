@@ -4,7 +4,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.Objects;
 
-public record Post(UUID id, String title, String content, LocalDateTime createdAt) {
+public record Post(UUID id, String title, String content, LocalDateTime createdAt, Integer version) {
 
     public Post {
         Objects.requireNonNull(title, "title must not be null");
@@ -12,6 +12,6 @@ public record Post(UUID id, String title, String content, LocalDateTime createdA
     }
 
     public static Post of(String title, String content) {
-        return new Post(null, title, content, null);
+        return new Post(null, title, content, null, null);
     }
 }
@@ -0,0 +1,143 @@
+package com.example.demo;
+
+import io.vertx.core.Future;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded read-through cache of posts keyed by id.
+ * <p>
+ * Entries expire after a fixed TTL, and the least recently used entry is evicted once {@code maxSize} is reached.
+ * Missing posts are cached too, so repeated lookups of an unknown id do not reach the database.
+ * A cache created with {@code maxSize} 0 is disabled and always delegates to the loader.
+ */
+public class PostCache {
+
+    private record Entry(Post post, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<UUID, Entry> entries;
+
+    // bumped on every invalidation, a load started before an invalidation must not be cached.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private PostCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                if (size() > PostCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static PostCache create(int maxSize, Duration ttl) {
+        return new PostCache(maxSize, ttl);
+    }
+
+    public static PostCache disabled() {
+        return new PostCache(0, Duration.ZERO);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public Future<Post> getOrLoad(UUID id, Function<UUID, Future<Post>> loader) {
+        return getOrLoad(id, loader, null);
+    }
+
+    /**
+     * The same, keeping the loaded post for {@code maxTtl} at most when it is shorter than the TTL of the cache, e.g.
+     * for a post read from a replica which may lag behind the primary.
+     */
+    public Future<Post> getOrLoad(UUID id, Function<UUID, Future<Post>> loader, Duration maxTtl) {
+        if (!isEnabled()) {
+            return loader.apply(id);
+        }
+
+        long loadingGeneration;
+        synchronized (this) {
+            var entry = entries.get(id);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.post() == null
+                    ? Future.failedFuture(new PostNotFoundException(id))
+                    : Future.succeededFuture(entry.post());
+            }
+            if (entry != null) {
+                entries.remove(id);
+                evictions.increment();
+            }
+            misses.increment();
+            loadingGeneration = generation;
+        }
+
+        long entryTtlNanos = maxTtl == null ? ttlNanos : Math.min(ttlNanos, maxTtl.toNanos());
+        return loader.apply(id)
+            .onSuccess(post -> put(id, post, loadingGeneration, entryTtlNanos))
+            .onFailure(throwable -> {
+                if (throwable instanceof PostNotFoundException) {
+                    put(id, null, loadingGeneration, entryTtlNanos);
+                }
+            });
+    }
+
+    private synchronized void put(UUID id, Post post, long loadingGeneration, long entryTtlNanos) {
+        if (loadingGeneration == generation && entryTtlNanos > 0) {
+            entries.put(id, new Entry(post, System.nanoTime() + entryTtlNanos));
+        }
+    }
+
+    // the generation of the loads starting now, see `PostRepository.findById`
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void invalidate(UUID id) {
+        generation++;
+        entries.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PostCache{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "}";
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Hand written JSON codec of {@link Post} and {@link CreatePostCommand}.
+ * <p>
+ * It streams fields straight between a Vert.x {@link Buffer} and the Jackson streaming API, without the reflective
+ * databind layer or an intermediate {@code JsonObject}. The output is the same as {@code Json.encode} with the
+ * {@code JavaTimeModule} configured in {@link MainVerticle}.
+ */
+public final class PostCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private PostCodec() {
+    }
+
+    public static Buffer encode(Post post) {
+        var buffer = Buffer.buffer(256);
+        try (var generator = FACTORY.createGenerator(new BufferOutputStream(buffer))) {
+            write(generator, post);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    public static Buffer encode(List<Post> posts) {
+        var buffer = Buffer.buffer(256 * Math.max(posts.size(), 1));
+        try (var generator = FACTORY.createGenerator(new BufferOutputStream(buffer))) {
+            generator.writeStartArray();
+            for (var post : posts) {
+                write(generator, post);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    private static void write(JsonGenerator generator, Post post) throws IOException {
+        generator.writeStartObject();
+        if (post.id() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeStringField("id", post.id().toString());
+        }
+        generator.writeStringField("title", post.title());
+        generator.writeStringField("content", post.content());
+        if (post.createdAt() == null) {
+            generator.writeNullField("createdAt");
+        } else {
+            // the format used by the JavaTimeModule LocalDateTimeSerializer
+            generator.writeStringField("createdAt", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(post.createdAt()));
+        }
+        if (post.version() == null) {
+            generator.writeNullField("version");
+        } else {
+            generator.writeNumberField("version", post.version());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Parse a {@link CreatePostCommand} from a JSON object, unknown fields are skipped.
+     *
+     * @throws DecodeException if the body is not a JSON object or title/content is missing.
+     */
+    public static CreatePostCommand decodeCommand(Buffer body) {
+        if (body == null || body.length() == 0) {
+            throw new DecodeException("The request body is empty");
+        }
+        String title = null;
+        String content = null;
+        try (var parser = FACTORY.createParser(new BufferInputStream(body))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecodeException("A JSON object is expected");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "title" -> title = textOf(parser);
+                    case "content" -> content = textOf(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new DecodeException("The JSON object is not closed");
+            }
+            // nothing but whitespace after the object
+            if (parser.nextToken() != null) {
+                throw new DecodeException("Unexpected content after the JSON object");
+            }
+        } catch (IOException e) {
+            throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+        }
+        if (title == null || content == null) {
+            throw new DecodeException("title and content must not be null");
+        }
+        return CreatePostCommand.of(title, content);
+    }
+
+    private static String textOf(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new DecodeException("A string is expected for " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private static final class BufferOutputStream extends OutputStream {
+        private final Buffer buffer;
+
+        private BufferOutputStream(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.appendByte((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.appendBytes(b, off, len);
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final Buffer buffer;
+        private int position;
+
+        private BufferInputStream(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return position < buffer.length() ? buffer.getByte(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int available = buffer.length() - position;
+            if (available <= 0) {
+                return -1;
+            }
+            int count = Math.min(len, available);
+            buffer.getBytes(position, position + count, b, off);
+            position += count;
+            return count;
+        }
+    }
+}
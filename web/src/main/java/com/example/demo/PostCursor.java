@@ -0,0 +1,37 @@
+package com.example.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * An opaque keyset cursor pointing at the last post of a page, ordered by {@code (created_at, id)}.
+ */
+public record PostCursor(LocalDateTime createdAt, UUID id) {
+
+    public PostCursor {
+        Objects.requireNonNull(createdAt, "createdAt must not be null");
+        Objects.requireNonNull(id, "id must not be null");
+    }
+
+    public static PostCursor of(Post post) {
+        return new PostCursor(post.createdAt(), post.id());
+    }
+
+    public String encode() {
+        var raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PostCursor decode(String value) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            var parts = raw.split(",", 2);
+            return new PostCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+}
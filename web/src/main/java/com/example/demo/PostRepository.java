@@ -1,11 +1,16 @@
 package com.example.demo;
 
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.sqlclient.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.StreamSupport;
@@ -15,29 +20,100 @@ import static java.util.stream.Collectors.toList;
 public class PostRepository {
     private static final Logger LOGGER = Logger.getLogger(PostRepository.class.getName());
 
-    private static Function<Row, Post> MAPPER = (Row row) ->
+    // two bind parameters per row, Postgres accepts at most 32767 parameters in a statement
+    static final int MAX_INSERT_ROWS = Short.MAX_VALUE / 2;
+
+    // package private, used by the benchmarks module
+    static final Function<Row, Post> MAPPER = (Row row) ->
         new Post(
             row.getUUID("id"),
             row.getString("title"),
             row.getString("content"),
-            row.getLocalDateTime("created_at")
+            row.getLocalDateTime("created_at"),
+            row.getInteger("version")
         );
 
 
-    private final Pool client;
+    // the reads go to the replica when there is one, see `PoolRouter`
+    private final PoolRouter pools;
+    private final PostCache cache;
+    private final List<Handler<UUID>> writeHandlers = new CopyOnWriteArrayList<>();
+
+    // concurrent identical reads share one query, see `SingleFlight`
+    // a load is only shared within the cache generation it started in, see `findById`
+    private record ByIdKey(UUID id, long generation) {
+    }
+
+    private final SingleFlight<ByIdKey, Post> byId = SingleFlight.create("posts.findById");
+    private final SingleFlight<String, List<Post>> lists = SingleFlight.create("posts.findAll");
+
+    // the inserts are written one by one unless `batchInserts` is called
+    private WriteBatcher<Post, UUID> inserts = WriteBatcher.disabled(this::insertAll);
 
-    private PostRepository(Pool sqlClient) {
-        this.client = sqlClient;
+    private PostRepository(PoolRouter pools, PostCache cache) {
+        this.pools = pools;
+        this.cache = cache;
     }
 
     //factory method
     public static PostRepository create(Pool client) {
-        return new PostRepository(client);
+        return new PostRepository(PoolRouter.single(client), PostCache.disabled());
+    }
+
+    public static PostRepository create(Pool client, PostCache cache) {
+        return new PostRepository(PoolRouter.single(client), cache);
+    }
+
+    public static PostRepository create(PoolRouter pools, PostCache cache) {
+        return new PostRepository(pools, cache);
+    }
+
+    /**
+     * Register a handler notified after every write, with the id of the written post,
+     * or null when several posts may have changed.
+     */
+    public PostRepository writeHandler(Handler<UUID> handler) {
+        writeHandlers.add(handler);
+        return this;
+    }
+
+    /**
+     * Write the concurrent {@link #save(Post)} calls of an event loop together, in one multi-row INSERT of up to
+     * {@code maxRows} posts, waiting at most {@code maxDelay} for the batch to fill up.
+     */
+    public PostRepository batchInserts(Vertx vertx, int maxRows, Duration maxDelay) {
+        if (maxRows > MAX_INSERT_ROWS) {
+            throw new IllegalArgumentException("maxRows must not exceed " + MAX_INSERT_ROWS + ": " + maxRows);
+        }
+        this.inserts = WriteBatcher.create(vertx, "posts.save", maxRows, maxDelay, this::insertAll);
+        return this;
+    }
+
+    // true when the reads may go to a replica, which may lag behind the primary
+    public boolean readsReplica() {
+        return pools.hasReplica();
+    }
+
+    private void written(UUID id) {
+        if (id == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(id);
+        }
+        writeHandlers.forEach(handler -> handler.handle(id));
     }
 
     public Future<List<Post>> findAll() {
-        String sql = "SELECT * FROM posts ORDER BY id ASC";
-        return client.query(sql)
+        // a request which wrote reads its writes from the primary, not from a load shared with other requests
+        if (pools.isSticky()) {
+            return loadAll();
+        }
+        return lists.execute("", key -> loadAll());
+    }
+
+    private Future<List<Post>> loadAll() {
+        String sql = "SELECT * FROM posts ORDER BY created_at ASC, id ASC";
+        return pools.read().query(sql)
             .execute()
             .map(rs -> StreamSupport.stream(rs.spliterator(), false)
                 .map(MAPPER)
@@ -45,11 +121,79 @@ public class PostRepository {
             );
     }
 
+    // keyset pagination on (created_at, id), `after` is null for the first page.
+    public Future<List<Post>> findAll(int limit, PostCursor after) {
+        if (pools.isSticky()) {
+            return loadPage(limit, after);
+        }
+        var key = "limit=" + limit + "&after=" + (after == null ? "" : after.encode());
+        return lists.execute(key, k -> loadPage(limit, after));
+    }
+
+    private Future<List<Post>> loadPage(int limit, PostCursor after) {
+        if (after == null) {
+            String sql = "SELECT * FROM posts ORDER BY created_at ASC, id ASC LIMIT $1";
+            return pools.read().preparedQuery(sql)
+                .execute(Tuple.of(limit))
+                .map(rs -> StreamSupport.stream(rs.spliterator(), false)
+                    .map(MAPPER)
+                    .toList()
+                );
+        }
+        String sql = "SELECT * FROM posts WHERE (created_at, id) > ($1, $2) ORDER BY created_at ASC, id ASC LIMIT $3";
+        return pools.read().preparedQuery(sql)
+            .execute(Tuple.of(after.createdAt(), after.id(), limit))
+            .map(rs -> StreamSupport.stream(rs.spliterator(), false)
+                .map(MAPPER)
+                .toList()
+            );
+    }
+
+    /**
+     * Stream all posts through a Postgres cursor, fetching {@code fetchSize} rows at a time.
+     * The cursor lives in a transaction which is committed when the future returned by the consumer completes,
+     * the consumer is responsible for pausing the stream when its downstream can not keep up.
+     */
+    public Future<Void> streamAll(int fetchSize, Function<ReadStream<Post>, Future<Void>> consumer) {
+        return streamAll(fetchSize, null, consumer);
+    }
+
+    // the same, resuming after the `after` cursor when it is not null.
+    public Future<Void> streamAll(int fetchSize, PostCursor after, Function<ReadStream<Post>, Future<Void>> consumer) {
+        if (after == null) {
+            String sql = "SELECT * FROM posts ORDER BY created_at ASC, id ASC";
+            return pools.read().withTransaction(
+                conn -> conn.prepare(sql)
+                    .compose(pq -> consumer.apply(new PostReadStream(pq.createStream(fetchSize))))
+            );
+        }
+        String sql = "SELECT * FROM posts WHERE (created_at, id) > ($1, $2) ORDER BY created_at ASC, id ASC";
+        return pools.read().withTransaction(
+            conn -> conn.prepare(sql)
+                .compose(pq -> consumer.apply(new PostReadStream(pq.createStream(fetchSize, Tuple.of(after.createdAt(), after.id())))))
+        );
+    }
+
 
     public Future<Post> findById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
+        if (pools.isSticky()) {
+            return loadById(id);
+        }
+        // a post read from the replica may be up to `maxLag` behind the primary, and an invalidation received before the
+        // replica caught up does not evict it, it is not cached longer than `maxLag`
+        // a caller missing right after an invalidation must not join a load which started before the write, it would cache
+        // the old post under the new generation
+        return cache.getOrLoad(
+            id,
+            key -> byId.execute(new ByIdKey(key, cache.generation()), k -> loadById(k.id())),
+            pools.hasReplica() ? pools.maxLag() : null
+        );
+    }
+
+    private Future<Post> loadById(UUID id) {
         String sql = "SELECT * FROM posts WHERE id=$1";
-        return client.preparedQuery(sql).execute(Tuple.of(id))
+        return pools.read().preparedQuery(sql).execute(Tuple.of(id))
             .map(RowSet::iterator)
             .map(iterator -> {
                     if (iterator.hasNext()) {
@@ -61,43 +205,156 @@ public class PostRepository {
     }
 
     public Future<UUID> save(Post data) {
-        String sql = "INSERT INTO posts(title, content) VALUES ($1, $2) RETURNING (id)";
-        return client.preparedQuery(sql)
-            .execute(Tuple.of(data.title(), data.content()))
-            .map(rs -> rs.iterator().next().getUUID("id"));
+        // the batch may be written from the context of another request
+        pools.stick();
+        return inserts.submit(data)
+            .onSuccess(this::written);
     }
 
-    public Future<Integer> saveAll(List<Post> data) {
-        var tuples = data.stream()
-            .map(d -> Tuple.of(d.title(), d.content()))
-            .toList();
+    // one multi-row INSERT, Postgres returns the rows of a VALUES list in order, the ids are in the order of `data`.
+    private Future<List<UUID>> insertAll(List<Post> data) {
+        var sql = new StringBuilder("INSERT INTO posts(title, content) VALUES ");
+        var tuple = Tuple.tuple();
+        for (int i = 0; i < data.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("($").append(2 * i + 1).append(", $").append(2 * i + 2).append(")");
+            tuple.addString(data.get(i).title()).addString(data.get(i).content());
+        }
+        sql.append(" RETURNING (id)");
+        return pools.write().preparedQuery(sql.toString())
+            .execute(tuple)
+            .map(rs -> StreamSupport.stream(rs.spliterator(), false)
+                .map(row -> row.getUUID("id"))
+                .toList()
+            );
+    }
 
-        String sql = "INSERT INTO posts (title, content) VALUES ($1, $2)";
-        return client.preparedQuery(sql)
-            .executeBatch(tuples)
-            .map(SqlResult::rowCount);
+    // one multi-row INSERT statement, keep `data` under 32767 posts to stay in the bind parameter limit.
+    public Future<Integer> saveAll(List<Post> data) {
+        if (data.isEmpty()) {
+            return Future.succeededFuture(0);
+        }
+        var sql = new StringBuilder("INSERT INTO posts (title, content) VALUES ");
+        var tuple = Tuple.tuple();
+        for (int i = 0; i < data.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("($").append(2 * i + 1).append(", $").append(2 * i + 2).append(")");
+            tuple.addString(data.get(i).title()).addString(data.get(i).content());
+        }
+        return pools.write().preparedQuery(sql.toString())
+            .execute(tuple)
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(null));
     }
 
+    /**
+     * Update the title and content of a post and bump its version in a single statement.
+     * When {@code data.version()} is not null the update only applies to that version of the post.
+     *
+     * @return the new version, or a failed future with {@link PostNotFoundException} or {@link PostVersionMismatchException}
+     */
     public Future<Integer> update(Post data) {
-        String sql = "UPDATE posts SET title=$1, content=$2 WHERE id=$3";
-        return client.preparedQuery(sql)
-            .execute(Tuple.of(data.title(), data.content(), data.id()))
-            .map(SqlResult::rowCount);
+        String sql = "UPDATE posts SET title=$1, content=$2, updated_at=LOCALTIMESTAMP, version=COALESCE(version, 0) + 1 " +
+            "WHERE id=$3 AND ($4::integer IS NULL OR COALESCE(version, 0)=$4) RETURNING version";
+        return pools.write().preparedQuery(sql)
+            .execute(Tuple.of(data.title(), data.content(), data.id(), data.version()))
+            .compose(rs -> rs.size() > 0
+                ? Future.succeededFuture(rs.iterator().next().getInteger("version"))
+                : this.<Integer>notFoundOrMismatch(data.id(), data.version())
+            )
+            .onComplete(ar -> written(data.id()));
     }
 
     public Future<Integer> deleteAll() {
         String sql = "DELETE FROM posts";
-        return client.query(sql)
+        return pools.write().query(sql)
             .execute()
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(null));
+    }
+
+    /**
+     * Delete a post, only when it is at {@code version} if that is not null.
+     *
+     * @return a failed future with {@link PostNotFoundException} or {@link PostVersionMismatchException} if nothing was deleted
+     */
+    public Future<Void> deleteById(UUID id, Integer version) {
+        Objects.requireNonNull(id, "id can not be null");
+        String sql = "DELETE FROM posts WHERE id=$1 AND ($2::integer IS NULL OR COALESCE(version, 0)=$2)";
+        return pools.write().preparedQuery(sql)
+            .execute(Tuple.of(id, version))
+            .compose(rs -> rs.rowCount() > 0 ? Future.<Void>succeededFuture() : this.<Void>notFoundOrMismatch(id, version))
+            .onComplete(ar -> written(id));
+    }
+
+    // only reached when a write matched no row, to tell a missing post from a stale version.
+    private <T> Future<T> notFoundOrMismatch(UUID id, Integer version) {
+        if (version == null) {
+            return Future.failedFuture(new PostNotFoundException(id));
+        }
+        return pools.write().preparedQuery("SELECT 1 FROM posts WHERE id=$1")
+            .execute(Tuple.of(id))
+            .compose(rs -> Future.failedFuture(rs.size() > 0
+                ? new PostVersionMismatchException(id, version)
+                : new PostNotFoundException(id)
+            ));
     }
 
     public Future<Integer> deleteById(UUID id) {
         Objects.requireNonNull(id, "id can not be null");
         String sql = "DELETE FROM posts WHERE id=$1";
-        return client.preparedQuery(sql)
+        return pools.write().preparedQuery(sql)
             .execute(Tuple.of(id))
-            .map(SqlResult::rowCount);
+            .map(SqlResult::rowCount)
+            .onComplete(ar -> written(id));
+    }
+
+    private static final class PostReadStream implements ReadStream<Post> {
+        private final RowStream<Row> rows;
+
+        private PostReadStream(RowStream<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public ReadStream<Post> exceptionHandler(Handler<Throwable> handler) {
+            rows.exceptionHandler(handler);
+            return this;
+        }
+
+        @Override
+        public ReadStream<Post> handler(Handler<Post> handler) {
+            rows.handler(handler == null ? null : row -> handler.handle(MAPPER.apply(row)));
+            return this;
+        }
+
+        @Override
+        public ReadStream<Post> pause() {
+            rows.pause();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Post> resume() {
+            rows.resume();
+            return this;
+        }
+
+        @Override
+        public ReadStream<Post> fetch(long amount) {
+            rows.fetch(amount);
+            return this;
+        }
+
+        @Override
+        public ReadStream<Post> endHandler(Handler<Void> endHandler) {
+            rows.endHandler(endHandler);
+            return this;
+        }
     }
 
 }
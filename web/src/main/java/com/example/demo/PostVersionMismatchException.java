@@ -0,0 +1,9 @@
+package com.example.demo;
+
+import java.util.UUID;
+
+public class PostVersionMismatchException extends RuntimeException {
+    public PostVersionMismatchException(UUID id, Integer version) {
+        super("Post id: " + id + " is not at version: " + version + ". ");
+    }
+}
@@ -1,51 +1,255 @@
 package com.example.demo;
 
-import io.vertx.core.json.Json;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
 import io.vertx.ext.web.RoutingContext;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 class PostsHandler {
     private static final Logger LOGGER = Logger.getLogger(PostsHandler.class.getSimpleName());
-    private final PostRepository posts;
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int STREAM_FETCH_SIZE = 50;
+    private static final int BULK_CHUNK_SIZE = 500;
+    private static final int BULK_MAX_LINE_SIZE = 64 * 1024;
+    // the errors listed in a bulk import report, the others are only counted
+    private static final int BULK_MAX_ERRORS = 100;
 
-    private PostsHandler(PostRepository postsRepository) {
+    // shared read-only chunks of the streamed json array
+    private static final Buffer OPEN_ARRAY = Buffer.buffer("[");
+    private static final Buffer CLOSE_ARRAY = Buffer.buffer("]");
+    private static final Buffer COMMA = Buffer.buffer(",");
+
+    // the last event of an export, an EventSource would otherwise reconnect once the stream ends
+    private static final Buffer END_EVENT = Buffer.buffer("event: end\ndata: \n\n");
+
+    // package private, shared with the BlockingPostsHandler
+    final PostRepository posts;
+    private final ResponseCache responseCache;
+
+    PostsHandler(PostRepository postsRepository, ResponseCache responseCache) {
         this.posts = postsRepository;
+        this.responseCache = responseCache;
     }
 
     //factory method
     public static PostsHandler create(PostRepository posts) {
-        return new PostsHandler(posts);
+        return new PostsHandler(posts, ResponseCache.disabled());
+    }
+
+    public static PostsHandler create(PostRepository posts, ResponseCache responseCache) {
+        posts.writeHandler(id -> responseCache.invalidateAll());
+        return new PostsHandler(posts, responseCache);
     }
 
     public void all(RoutingContext rc) {
-//        var params = rc.queryParams();
-//        var q = params.get("q");
-//        var limit = params.get("limit") == null ? 10 : Integer.parseInt(params.get("q"));
-//        var offset = params.get("offset") == null ? 0 : Integer.parseInt(params.get("offset"));
-//        LOGGER.log(Level.INFO, " find by keyword: q={0}, limit={1}, offset={2}", new Object[]{q, limit, offset});
-        this.posts.findAll()
-            .onSuccess(
-                data -> rc.response().end(Json.encode(data))
-            );
+        var params = rc.queryParams();
+        var key = params.contains("limit") || params.contains("after")
+            ? "limit=" + params.get("limit") + "&after=" + params.get("after")
+            : "";
+        if (responseCache.isEnabled()) {
+            var cached = responseCache.get(key);
+            if (cached != null) {
+                end(rc, cached);
+                return;
+            }
+        }
+        if (key.isEmpty()) {
+            stream(rc);
+        } else {
+            page(rc, key);
+        }
+    }
+
+    private static void end(RoutingContext rc, ResponseCache.Entry entry) {
+        var response = rc.response().putHeader("Content-Type", "application/json");
+        if (entry.link() != null) {
+            response.putHeader("Link", entry.link());
+        }
+        response.end(entry.body());
+    }
+
+    // GET /posts?limit=&after=, the `Link` header carries the cursor of the next page.
+    private void page(RoutingContext rc, String key) {
+        var params = rc.queryParams();
+        int limit;
+        PostCursor after;
+        try {
+            limit = params.get("limit") == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(params.get("limit"));
+            after = params.get("after") == null ? null : PostCursor.decode(params.get("after"));
+        } catch (IllegalArgumentException e) {
+            rc.fail(400, e);
+            return;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            rc.fail(400, new IllegalArgumentException("limit should be between 1 and " + MAX_PAGE_SIZE));
+            return;
+        }
+        LOGGER.log(Level.INFO, "find page: limit={0}, after={1}", new Object[]{limit, after});
+
+        var generation = responseCache.generation();
+        this.posts.findAll(limit, after)
+            .onSuccess(data -> {
+                    String link = null;
+                    if (data.size() == limit) {
+                        var next = PostCursor.of(data.getLast()).encode();
+                        link = "</posts?limit=" + limit + "&after=" + next + ">; rel=\"next\"";
+                    }
+                    var entry = new ResponseCache.Entry(PostCodec.encode(data), link);
+                    responseCache.put(key, entry, generation);
+                    end(rc, entry);
+                }
+            )
+            .onFailure(rc::fail);
+    }
+
+    // GET /posts, writes the json array element by element from a database cursor.
+    // With the response cache enabled, a copy is kept as long as it stays under the cache `maxBytes`.
+    private void stream(RoutingContext rc) {
+        var response = rc.response();
+        var generation = responseCache.generation();
+        var copy = new Buffer[]{responseCache.isEnabled() ? Buffer.buffer() : null};
+        this.posts
+            .streamAll(STREAM_FETCH_SIZE, stream -> {
+                Promise<Void> done = Promise.promise();
+                response.setChunked(true).putHeader("Content-Type", "application/json");
+                response.closeHandler(v -> done.tryFail("Connection was closed by the client"));
+
+                var first = new boolean[]{true};
+                Handler<Buffer> write = chunk -> {
+                    response.write(chunk);
+                    if (copy[0] != null) {
+                        copy[0] = copy[0].length() + chunk.length() > responseCache.maxBytes() ? null : copy[0].appendBuffer(chunk);
+                    }
+                };
+                write.handle(OPEN_ARRAY);
+                stream.exceptionHandler(done::tryFail);
+                stream.endHandler(v -> {
+                    write.handle(CLOSE_ARRAY);
+                    if (copy[0] != null) {
+                        responseCache.put("", new ResponseCache.Entry(copy[0], null), generation);
+                    }
+                    response.end().onComplete(done);
+                });
+                stream.handler(post -> {
+                    if (!first[0]) {
+                        write.handle(COMMA);
+                    }
+                    write.handle(PostCodec.encode(post));
+                    first[0] = false;
+                    if (response.writeQueueFull()) {
+                        stream.pause();
+                        response.drainHandler(d -> stream.resume());
+                    }
+                });
+                return done.future();
+            })
+            .onFailure(throwable -> {
+                LOGGER.log(Level.WARNING, "Failed to stream posts: {0}", throwable.getMessage());
+                if (response.headWritten()) {
+                    response.reset();
+                } else {
+                    rc.fail(throwable);
+                }
+            });
+    }
+
+    /**
+     * GET /posts/export, all the posts from a database cursor, as Server-Sent Events or as NDJSON.
+     * <p>
+     * Every event carries the cursor of its post as the event id, every NDJSON line as its `cursor` field.
+     * An interrupted export is resumed after a cursor with the `Last-Event-ID` header, or the `since` query param.
+     * The database cursor is paused while the response write queue is full, the memory stays the same whatever the
+     * size of the export.
+     */
+    public void export(RoutingContext rc) {
+        var since = rc.request().getHeader("Last-Event-ID");
+        if (since == null) {
+            since = rc.queryParams().get("since");
+        }
+        PostCursor after;
+        try {
+            after = since == null || since.isBlank() ? null : PostCursor.decode(since);
+        } catch (IllegalArgumentException e) {
+            rc.fail(400, e);
+            return;
+        }
+        boolean eventStream = "text/event-stream".equals(rc.getAcceptableContentType());
+        LOGGER.log(Level.INFO, "export posts: eventStream={0}, after={1}", new Object[]{eventStream, after});
+
+        var response = rc.response();
+        this.posts
+            .streamAll(STREAM_FETCH_SIZE, after, stream -> {
+                Promise<Void> done = Promise.promise();
+                response.setChunked(true)
+                    .putHeader("Content-Type", eventStream ? "text/event-stream" : "application/x-ndjson")
+                    .putHeader("Cache-Control", "no-cache");
+                response.closeHandler(v -> done.tryFail("Connection was closed by the client"));
+
+                stream.exceptionHandler(done::tryFail);
+                stream.endHandler(v -> (eventStream ? response.end(END_EVENT) : response.end()).onComplete(done));
+                stream.handler(post -> {
+                    var cursor = PostCursor.of(post).encode();
+                    var json = PostCodec.encode(post);
+                    response.write(eventStream
+                        ? Buffer.buffer("id: " + cursor + "\nevent: post\ndata: ").appendBuffer(json).appendString("\n\n")
+                        : Buffer.buffer("{\"cursor\":\"" + cursor + "\",\"post\":").appendBuffer(json).appendString("}\n")
+                    );
+                    if (response.writeQueueFull()) {
+                        stream.pause();
+                        response.drainHandler(d -> stream.resume());
+                    }
+                });
+                return done.future();
+            })
+            .onFailure(throwable -> {
+                LOGGER.log(Level.WARNING, "Failed to export posts: {0}", throwable.getMessage());
+                if (response.headWritten()) {
+                    response.reset();
+                } else {
+                    rc.fail(throwable);
+                }
+            });
     }
 
     public void get(RoutingContext rc) {
         var params = rc.pathParams();
         var id = params.get("id");
         this.posts.findById(UUID.fromString(id))
-            .onSuccess(post -> rc.response().end(Json.encode(post)))
+            .onSuccess(post -> {
+                var etag = etag(post.version());
+                var response = rc.response().putHeader("ETag", etag);
+                if (noneMatch(rc.request().getHeader("If-None-Match"), etag)) {
+                    response.end(PostCodec.encode(post));
+                } else {
+                    response.setStatusCode(304).end();
+                }
+            })
             .onFailure(rc::fail);
     }
 
 
     public void save(RoutingContext rc) {
         //rc.getBodyAsJson().mapTo(PostForm.class)
-        var body = rc.body().asJsonObject();
-        LOGGER.log(Level.INFO, "request body: {0}", body);
-        var form = body.mapTo(CreatePostCommand.class);
+        CreatePostCommand form;
+        try {
+            form = PostCodec.decodeCommand(rc.body().buffer());
+        } catch (DecodeException e) {
+            rc.fail(400, e);
+            return;
+        }
+        LOGGER.log(Level.INFO, "request body: {0}", form);
         this.posts.save(Post.of(form.title(), form.content()))
             .onSuccess(
                 savedId -> rc.response()
@@ -55,36 +259,196 @@ class PostsHandler {
             );
     }
 
+    // POST /posts:bulk, the NDJSON body is parsed line by line and inserted in chunks, never buffered as a whole.
+    // Every record, the last one included, must be terminated by a new line: the parser drops an unterminated last
+    // record, it is reported as an error, not imported.
+    public void bulk(RoutingContext rc) {
+        var request = rc.request();
+        var parser = RecordParser.newDelimited("\n", request).maxRecordSize(BULK_MAX_LINE_SIZE);
+        var bulkImport = new BulkImport(System.nanoTime());
+
+        parser.exceptionHandler(throwable -> {
+            LOGGER.log(Level.WARNING, "Failed to read the bulk request: {0}", throwable.getMessage());
+            if (!rc.response().ended()) {
+                rc.fail(400, throwable);
+            }
+        });
+        parser.handler(line -> {
+            bulkImport.line++;
+            bulkImport.parsedBytes += line.length() + 1;
+            if (!bulkImport.parse(line) || bulkImport.chunk.size() < BULK_CHUNK_SIZE) {
+                return;
+            }
+            // stop reading the request until the chunk is written
+            parser.pause();
+            flush(bulkImport).onComplete(ar -> parser.resume());
+        });
+        parser.endHandler(v -> {
+            if (request.bytesRead() > bulkImport.parsedBytes) {
+                bulkImport.line++;
+                bulkImport.error(new JsonObject()
+                    .put("line", bulkImport.line)
+                    .put("message", "The last line is not terminated by a new line"));
+            }
+            flush(bulkImport).onComplete(ar -> {
+                LOGGER.log(Level.INFO, "bulk import: {0}", bulkImport.report());
+                rc.json(bulkImport.report());
+            });
+        });
+    }
+
+    private Future<Void> flush(BulkImport bulkImport) {
+        if (bulkImport.chunk.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        var chunk = bulkImport.chunk;
+        int firstLine = bulkImport.chunkFirstLine;
+        int lastLine = bulkImport.line;
+        bulkImport.chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+        return this.posts.saveAll(chunk)
+            .onSuccess(count -> bulkImport.rows += count)
+            .onFailure(throwable -> bulkImport.error(
+                new JsonObject()
+                    .put("fromLine", firstLine)
+                    .put("toLine", lastLine)
+                    .put("message", throwable.getMessage())
+            ))
+            .<Void>mapEmpty()
+            .otherwiseEmpty();
+    }
+
+    private static final class BulkImport {
+        private final long startedAt;
+        private final JsonArray errors = new JsonArray();
+        private List<Post> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+        private int chunkFirstLine;
+        private int line;
+        // the bytes of the parsed lines and of their new lines, less than the bytes read when the last line is unterminated
+        private long parsedBytes;
+        private long rows;
+        private long omittedErrors;
+
+        private BulkImport(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        // returns false when the line was skipped
+        private boolean parse(Buffer line) {
+            if (line.toString().isBlank()) {
+                return false;
+            }
+            try {
+                var form = PostCodec.decodeCommand(line);
+                if (chunk.isEmpty()) {
+                    chunkFirstLine = this.line;
+                }
+                chunk.add(Post.of(form.title(), form.content()));
+                return true;
+            } catch (RuntimeException e) {
+                error(new JsonObject().put("line", this.line).put("message", e.getMessage()));
+                return false;
+            }
+        }
+
+        // the report lists the first errors only, a bad multi GB upload must not build an unbounded report
+        private void error(JsonObject error) {
+            if (errors.size() < BULK_MAX_ERRORS) {
+                errors.add(error);
+            } else {
+                omittedErrors++;
+            }
+        }
+
+        private JsonObject report() {
+            double seconds = Math.max(System.nanoTime() - startedAt, 1) / 1_000_000_000.0;
+            return new JsonObject()
+                .put("rows", rows)
+                .put("lines", line)
+                .put("elapsedMillis", (long) (seconds * 1000))
+                .put("rowsPerSecond", (long) (rows / seconds))
+                .put("errors", errors)
+                .put("omittedErrors", omittedErrors);
+        }
+    }
+
+    // a single conditional UPDATE, `If-Match` makes it apply to the given version only.
     public void update(RoutingContext rc) {
         var params = rc.pathParams();
         var id = params.get("id");
-        var body = rc.body().asJsonObject();
-        LOGGER.log(Level.INFO, "\npath param id: {0}\nrequest body: {1}", new Object[]{id, body});
-        var form = body.mapTo(CreatePostCommand.class);
+        CreatePostCommand form;
+        try {
+            form = PostCodec.decodeCommand(rc.body().buffer());
+        } catch (DecodeException e) {
+            rc.fail(400, e);
+            return;
+        }
+        LOGGER.log(Level.INFO, "\npath param id: {0}\nrequest body: {1}", new Object[]{id, form});
         UUID uuid = UUID.fromString(id);
+        var version = matchedVersion(rc.request().getHeader("If-Match"));
 
-        this.posts.findById(uuid)
-            .compose(
-                post -> {
-                    var toUpdated = new Post(post.id(), form.title(), form.content(), post.createdAt());
-                    return this.posts.update(toUpdated);
-                }
-            )
-            .onSuccess(data -> rc.response().setStatusCode(204).end())
-            .onFailure(throwable -> rc.fail(404, throwable));
+        this.posts.update(new Post(uuid, form.title(), form.content(), null, version))
+            .onSuccess(newVersion -> rc.response().putHeader("ETag", etag(newVersion)).setStatusCode(204).end())
+            .onFailure(throwable -> rc.fail(statusOf(throwable), throwable));
     }
 
     public void delete(RoutingContext rc) {
         var params = rc.pathParams();
         var id = params.get("id");
         var uuid = UUID.fromString(id);
+        var version = matchedVersion(rc.request().getHeader("If-Match"));
 
-        this.posts.findById(uuid)
-            .compose(
-                post -> this.posts.deleteById(uuid)
-            )
+        this.posts.deleteById(uuid, version)
             .onSuccess(data -> rc.response().setStatusCode(204).end())
-            .onFailure(throwable -> rc.fail(404, throwable));
+            .onFailure(throwable -> rc.fail(statusOf(throwable), throwable));
+    }
+
+    // strong entity tag of a post, posts saved before versioning was in place are at version 0.
+    static String etag(Integer version) {
+        return "\"" + (version == null ? 0 : version) + "\"";
+    }
+
+    static boolean noneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return true;
+        }
+        for (var tag : ifNoneMatch.split(",")) {
+            var candidate = tag.trim();
+            // weak comparison for If-None-Match
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the version required by `If-Match`, null when the header is absent or `*`.
+    static Integer matchedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        try {
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                return Integer.valueOf(tag.substring(1, tag.length() - 1));
+            }
+        } catch (NumberFormatException e) {
+            // falls through, not a tag issued by us
+        }
+        // weak or unknown tags never match a strong comparison
+        return -1;
+    }
+
+    static int statusOf(Throwable throwable) {
+        if (throwable instanceof PostNotFoundException) {
+            return 404;
+        }
+        if (throwable instanceof PostVersionMismatchException) {
+            return 412;
+        }
+        return 500;
     }
 
 }
@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesce the concurrent loads of the same key: while a load is in flight, the callers asking for the same key
+ * share its future instead of issuing their own query.
+ * <p>
+ * Every event loop thread has its own in-flight table, shared by all the requests it runs and no lock is needed. The
+ * futures of the SQL client complete on the caller's context, so on the thread of the table, where the key is
+ * removed from it. A future is never shared across event loops, its callbacks run on the caller's event loop.
+ * A result is never kept after its load completes, a caller can not see anything staler than the in-flight load.
+ * Off an event loop thread, e.g. on a virtual thread or in a test thread, nothing is coalesced.
+ */
+public class SingleFlight<K, V> {
+
+    // the in-flight loads of every event loop thread
+    private final ThreadLocal<Map<K, Future<V>>> inFlight = ThreadLocal.withInitial(HashMap::new);
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final Counter requestsCounter;
+    private final Counter executionsCounter;
+
+    private SingleFlight(String name) {
+        var registry = BackendRegistries.getDefaultNow();
+        this.requestsCounter = registry == null ? null : Counter.builder("posts.singleflight.requests").tag("name", name).register(registry);
+        this.executionsCounter = registry == null ? null : Counter.builder("posts.singleflight.executions").tag("name", name).register(registry);
+    }
+
+    public static <K, V> SingleFlight<K, V> create(String name) {
+        return new SingleFlight<>(name);
+    }
+
+    public Future<V> execute(K key, Function<K, Future<V>> loader) {
+        count(requests, requestsCounter);
+        if (!Context.isOnEventLoopThread()) {
+            count(executions, executionsCounter);
+            return loader.apply(key);
+        }
+
+        var table = inFlight.get();
+        var pending = table.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        count(executions, executionsCounter);
+        var future = loader.apply(key);
+        if (!future.isComplete()) {
+            table.put(key, future);
+            future.onComplete(ar -> table.remove(key, future));
+        }
+        return future;
+    }
+
+    private static void count(LongAdder adder, Counter counter) {
+        adder.increment();
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long executions() {
+        return executions.sum();
+    }
+
+    // the share of the requests served by another caller's load
+    public double coalescingRatio() {
+        long total = requests();
+        return total == 0 ? 0 : 1 - (double) executions() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{requests=" + requests() + ", executions=" + executions() + ", coalescingRatio=" + coalescingRatio() + "}";
+    }
+}
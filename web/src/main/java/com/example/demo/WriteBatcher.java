@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesce the concurrent writes into batches: the items submitted within {@code maxDelay} of the first one, or until
+ * {@code maxSize} items are pending, are written together by one call of the writer, and every caller gets its own
+ * result back.
+ * <p>
+ * The delay bounds the extra latency of a write, a batch is flushed at the latest {@code maxDelay} after its first
+ * item. The writer must return one result per item, in the order of the items.
+ * <p>
+ * Like {@link SingleFlight}, every event loop thread fills its own pending batch, shared by the requests it runs, and
+ * no lock is needed: the timer flushing a batch runs on the event loop which started it. Off an event loop thread,
+ * e.g. on a virtual thread or in a test thread, every item is written at once. A batcher created with
+ * {@link #disabled(Function)} writes every item at once too.
+ */
+public class WriteBatcher<T, R> {
+
+    private static final class Batch<T, R> {
+        private final List<T> items = new ArrayList<>();
+        private final List<Promise<R>> promises = new ArrayList<>();
+        private long timerId = -1;
+    }
+
+    private final Vertx vertx;
+    private final int maxSize;
+    private final long maxDelayMillis;
+    private final Function<List<T>, Future<List<R>>> writer;
+
+    // the pending batch of every event loop thread
+    private final ThreadLocal<Batch<T, R>> pending = new ThreadLocal<>();
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final DistributionSummary batchSize;
+    private final Counter flushedBySize;
+    private final Counter flushedByDelay;
+
+    private WriteBatcher(Vertx vertx, String name, int maxSize, Duration maxDelay, Function<List<T>, Future<List<R>>> writer) {
+        this.vertx = vertx;
+        this.maxSize = maxSize;
+        this.maxDelayMillis = Math.max(1, maxDelay.toMillis());
+        this.writer = writer;
+        var registry = vertx == null ? null : BackendRegistries.getDefaultNow();
+        this.batchSize = registry == null ? null : DistributionSummary.builder("posts.batch.size").tag("name", name).register(registry);
+        this.flushedBySize = registry == null ? null : Counter.builder("posts.batch.flushes").tags("name", name, "trigger", "size").register(registry);
+        this.flushedByDelay = registry == null ? null : Counter.builder("posts.batch.flushes").tags("name", name, "trigger", "delay").register(registry);
+    }
+
+    /**
+     * @param name     the name tag of the batch metrics.
+     * @param maxSize  the max number of items of a batch.
+     * @param maxDelay the max time an item waits for its batch to be written.
+     * @param writer   write a batch, and return the results in the order of the items.
+     */
+    public static <T, R> WriteBatcher<T, R> create(Vertx vertx, String name, int maxSize, Duration maxDelay,
+                                                   Function<List<T>, Future<List<R>>> writer) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        return new WriteBatcher<>(vertx, name, maxSize, maxDelay, writer);
+    }
+
+    public static <T, R> WriteBatcher<T, R> disabled(Function<List<T>, Future<List<R>>> writer) {
+        return new WriteBatcher<>(null, "disabled", 1, Duration.ZERO, writer);
+    }
+
+    public Future<R> submit(T item) {
+        if (vertx == null || maxSize == 1 || !Context.isOnEventLoopThread()) {
+            return writer.apply(List.of(item)).map(results -> results.get(0));
+        }
+
+        Batch<T, R> batch = pending.get();
+        if (batch == null) {
+            var started = new Batch<T, R>();
+            started.timerId = vertx.setTimer(maxDelayMillis, id -> flush(started, flushedByDelay));
+            pending.set(started);
+            batch = started;
+        }
+        Promise<R> promise = Promise.promise();
+        batch.items.add(item);
+        batch.promises.add(promise);
+        if (batch.items.size() >= maxSize) {
+            vertx.cancelTimer(batch.timerId);
+            flush(batch, flushedBySize);
+        }
+        return promise.future();
+    }
+
+    private void flush(Batch<T, R> batch, Counter trigger) {
+        // already flushed when it filled up before its timer fired
+        if (pending.get() != batch) {
+            return;
+        }
+        // the batch is no longer pending, the next item starts a new one
+        pending.remove();
+        batches.increment();
+        items.add(batch.items.size());
+        if (batchSize != null) {
+            batchSize.record(batch.items.size());
+            trigger.increment();
+        }
+
+        Future<List<R>> written;
+        try {
+            written = writer.apply(batch.items);
+        } catch (RuntimeException e) {
+            written = Future.failedFuture(e);
+        }
+        written.onComplete(ar -> {
+            if (ar.succeeded() && ar.result().size() != batch.items.size()) {
+                var mismatch = new IllegalStateException("Expected " + batch.items.size() + " results, got " + ar.result().size());
+                batch.promises.forEach(promise -> promise.fail(mismatch));
+            } else if (ar.succeeded()) {
+                for (int i = 0; i < batch.promises.size(); i++) {
+                    batch.promises.get(i).complete(ar.result().get(i));
+                }
+            } else {
+                batch.promises.forEach(promise -> promise.fail(ar.cause()));
+            }
+        });
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    // the average number of items written together
+    public double averageBatchSize() {
+        long count = batches();
+        return count == 0 ? 0 : (double) items.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBatcher{maxSize=" + maxSize + ", maxDelayMillis=" + maxDelayMillis + ", batches=" + batches() + ", averageBatchSize=" + averageBatchSize() + "}";
+    }
+}
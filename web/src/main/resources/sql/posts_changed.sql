@@ -0,0 +1,39 @@
+-- notify the ids of the posts written by every statement on `posts_changed`, the cache invalidation channel of the
+-- `web` module, installed by `CacheInvalidation.install` when the `NOTIFY` transport is configured only.
+-- A statement sends one notification with the comma separated ids, or `*` when they do not fit in a payload.
+CREATE OR REPLACE FUNCTION notify_posts_changed() RETURNS trigger AS $$
+DECLARE
+    ids text;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        ids := '*';
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT string_agg(id::text, ',') INTO ids FROM old_posts;
+    ELSE
+        SELECT string_agg(id::text, ',') INTO ids FROM new_posts;
+    END IF;
+    IF ids IS NOT NULL THEN
+        PERFORM pg_notify('posts_changed', CASE WHEN length(ids) > 7900 THEN '*' ELSE ids END);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- the row trigger of the former `init.sql`
+DROP TRIGGER IF EXISTS posts_changed ON posts;
+
+CREATE OR REPLACE TRIGGER posts_inserted
+    AFTER INSERT ON posts REFERENCING NEW TABLE AS new_posts
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_posts_changed();
+
+CREATE OR REPLACE TRIGGER posts_updated
+    AFTER UPDATE ON posts REFERENCING NEW TABLE AS new_posts
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_posts_changed();
+
+CREATE OR REPLACE TRIGGER posts_deleted
+    AFTER DELETE ON posts REFERENCING OLD TABLE AS old_posts
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_posts_changed();
+
+CREATE OR REPLACE TRIGGER posts_truncated
+    AFTER TRUNCATE ON posts
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_posts_changed();
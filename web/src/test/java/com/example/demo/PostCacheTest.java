@@ -0,0 +1,159 @@
+package com.example.demo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostCacheTest {
+
+    private static Post post(UUID id, String title) {
+        return new Post(id, title, "content", LocalDateTime.now(), 0);
+    }
+
+    // a loader counting its calls
+    private static final class Loader implements Function<UUID, Future<Post>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Function<UUID, Future<Post>> delegate;
+
+        private Loader(Function<UUID, Future<Post>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Future<Post> apply(UUID id) {
+            calls.incrementAndGet();
+            return delegate.apply(id);
+        }
+    }
+
+    @Test
+    void testHitAfterMiss() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.succeededFuture(post(key, "title")));
+
+        assertThat(cache.getOrLoad(id, loader).result().title()).isEqualTo("title");
+        assertThat(cache.getOrLoad(id, loader).result().title()).isEqualTo("title");
+        assertThat(loader.calls).hasValue(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        var cache = PostCache.create(2, Duration.ofMinutes(1));
+        var loader = new Loader(key -> Future.succeededFuture(post(key, "title")));
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        var third = UUID.randomUUID();
+
+        cache.getOrLoad(first, loader);
+        cache.getOrLoad(second, loader);
+        // the first post is used again, the second one is the least recently used
+        cache.getOrLoad(first, loader);
+        cache.getOrLoad(third, loader);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+        cache.getOrLoad(first, loader);
+        assertThat(loader.calls).hasValue(3);
+        cache.getOrLoad(second, loader);
+        assertThat(loader.calls).hasValue(4);
+    }
+
+    @Test
+    void testCachesMissingPosts() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.failedFuture(new PostNotFoundException(key)));
+
+        assertThat(cache.getOrLoad(id, loader).cause()).isInstanceOf(PostNotFoundException.class);
+        assertThat(cache.getOrLoad(id, loader).cause()).isInstanceOf(PostNotFoundException.class);
+        assertThat(loader.calls).hasValue(1);
+    }
+
+    @Test
+    void testDoesNotCacheOtherFailures() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.failedFuture(new IllegalStateException("connection closed")));
+
+        cache.getOrLoad(id, loader);
+        cache.getOrLoad(id, loader);
+        assertThat(loader.calls).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testReloadsExpiredEntries() throws InterruptedException {
+        var cache = PostCache.create(10, Duration.ofMillis(10));
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.succeededFuture(post(key, "title")));
+
+        cache.getOrLoad(id, loader);
+        Thread.sleep(20);
+        cache.getOrLoad(id, loader);
+        assertThat(loader.calls).hasValue(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void testMaxTtlCapsTheEntry() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.succeededFuture(post(key, "title")));
+
+        cache.getOrLoad(id, loader, Duration.ZERO);
+        cache.getOrLoad(id, loader, Duration.ZERO);
+        assertThat(loader.calls).hasValue(2);
+    }
+
+    @Test
+    void testInvalidationDuringLoadIsNotCached() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var inFlight = Promise.<Post>promise();
+
+        // the post is updated while its old version is loaded
+        cache.getOrLoad(id, key -> inFlight.future());
+        cache.invalidate(id);
+        inFlight.complete(post(id, "old title"));
+
+        var loaded = cache.getOrLoad(id, key -> Future.succeededFuture(post(key, "updated title")));
+        assertThat(loaded.result().title()).isEqualTo("updated title");
+        assertThat(cache.getOrLoad(id, key -> Future.failedFuture("not cached")).result().title()).isEqualTo("updated title");
+    }
+
+    @Test
+    void testInvalidateAllDuringLoadIsNotCached() {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        var id = UUID.randomUUID();
+        var inFlight = Promise.<Post>promise();
+
+        cache.getOrLoad(id, key -> inFlight.future());
+        cache.invalidateAll();
+        inFlight.complete(post(id, "old title"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testDisabledAlwaysLoads() {
+        var cache = PostCache.disabled();
+        var id = UUID.randomUUID();
+        var loader = new Loader(key -> Future.succeededFuture(post(key, "title")));
+
+        cache.getOrLoad(id, loader);
+        cache.getOrLoad(id, loader);
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(loader.calls).hasValue(2);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PostCodecTest {
+
+    @BeforeAll
+    static void setup() throws ClassNotFoundException {
+        // run the ObjectMapper customization in the MainVerticle static initializer
+        Class.forName(MainVerticle.class.getName());
+    }
+
+    @Test
+    void testEncodeSameAsDatabind() {
+        var posts = List.of(
+            new Post(UUID.randomUUID(), "title \"quoted\"", "content\nwith ünicode", LocalDateTime.of(2024, 1, 2, 3, 4), 1),
+            new Post(UUID.randomUUID(), "title", "content", LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123456000), null),
+            Post.of("title", "content")
+        );
+
+        assertThat(PostCodec.encode(posts.getFirst()).toString()).isEqualTo(Json.encode(posts.getFirst()));
+        assertThat(PostCodec.encode(posts).toString()).isEqualTo(Json.encode(posts));
+    }
+
+    @Test
+    void testDecodeCommand() {
+        var command = PostCodec.decodeCommand(Buffer.buffer("{\"title\": \"test title\", \"extra\": {\"a\": [1]}, \"content\": \"test content\"}"));
+        assertThat(command).isEqualTo(CreatePostCommand.of("test title", "test content"));
+
+        assertThatThrownBy(() -> PostCodec.decodeCommand(Buffer.buffer("{\"title\": \"test title\"}")))
+            .isInstanceOf(DecodeException.class);
+        assertThatThrownBy(() -> PostCodec.decodeCommand(Buffer.buffer("[]")))
+            .isInstanceOf(DecodeException.class);
+        assertThatThrownBy(() -> PostCodec.decodeCommand(Buffer.buffer("{\"title\": \"a\", \"content\": \"b\"} garbage")))
+            .isInstanceOf(DecodeException.class);
+        assertThatThrownBy(() -> PostCodec.decodeCommand(Buffer.buffer("{\"title\": \"a\", \"content\": \"b\"} {}")))
+            .isInstanceOf(DecodeException.class);
+    }
+}
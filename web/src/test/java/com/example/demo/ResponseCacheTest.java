@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCacheTest {
+
+    private static ResponseCache.Entry entry(String body) {
+        return new ResponseCache.Entry(Buffer.buffer(body), null);
+    }
+
+    @Test
+    void testHitAfterPut() {
+        var cache = ResponseCache.create(10, 1024);
+        assertThat(cache.get("")).isNull();
+
+        cache.put("", entry("[]"), cache.generation());
+        assertThat(cache.get("").body().toString()).isEqualTo("[]");
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void testWriteDropsEveryList() {
+        var cache = ResponseCache.create(10, 1024);
+        cache.put("", entry("[]"), cache.generation());
+        cache.put("limit=1&after=null", entry("[]"), cache.generation());
+
+        // what the write handler registered by `PostsHandler.create` does
+        cache.invalidateAll();
+        assertThat(cache.get("")).isNull();
+        assertThat(cache.get("limit=1&after=null")).isNull();
+    }
+
+    @Test
+    void testListRenderedBeforeWriteIsNotCached() {
+        var cache = ResponseCache.create(10, 1024);
+        var generation = cache.generation();
+
+        // a post is written while the list is rendered
+        cache.invalidateAll();
+        cache.put("", entry("[]"), generation);
+        assertThat(cache.get("")).isNull();
+    }
+
+    @Test
+    void testDoesNotKeepResponsesLargerThanMaxBytes() {
+        var cache = ResponseCache.create(10, 4);
+        cache.put("small", entry("[{}]"), cache.generation());
+        cache.put("large", entry("[{},{}]"), cache.generation());
+
+        assertThat(cache.get("small")).isNotNull();
+        assertThat(cache.get("large")).isNull();
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        var cache = ResponseCache.create(2, 1024);
+        cache.put("first", entry("[]"), cache.generation());
+        cache.put("second", entry("[]"), cache.generation());
+        cache.get("first");
+        cache.put("third", entry("[]"), cache.generation());
+
+        assertThat(cache.get("second")).isNull();
+        assertThat(cache.get("first")).isNotNull();
+        assertThat(cache.get("third")).isNotNull();
+    }
+
+    @Test
+    void testDisabledKeepsNothing() {
+        var cache = ResponseCache.disabled();
+        cache.put("", entry("[]"), cache.generation());
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get("")).isNull();
+    }
+}
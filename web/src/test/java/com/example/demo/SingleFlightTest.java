@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class SingleFlightTest {
+
+    @Test
+    void testSharesInFlightLoads(Vertx vertx, VertxTestContext testContext) {
+        SingleFlight<String, String> singleFlight = SingleFlight.create("test");
+        vertx.runOnContext(v -> testContext.verify(() -> {
+            var promise = Promise.<String>promise();
+            var first = singleFlight.execute("key", key -> promise.future());
+            var second = singleFlight.execute("key", key -> Future.succeededFuture("not shared"));
+            assertThat(second).isSameAs(first);
+            assertThat(singleFlight.executions()).isEqualTo(1);
+
+            // nothing is kept once the load completes
+            promise.complete("shared");
+            singleFlight.execute("key", key -> Future.succeededFuture("reloaded"))
+                .onComplete(testContext.succeeding(value -> testContext.verify(() -> {
+                    assertThat(value).isEqualTo("reloaded");
+                    assertThat(singleFlight.requests()).isEqualTo(3);
+                    assertThat(singleFlight.executions()).isEqualTo(2);
+                    testContext.completeNow();
+                })));
+        }));
+    }
+
+    // the loads keyed like `PostRepository.findById`
+    private record ByIdKey(UUID id, long generation) {
+    }
+
+    @Test
+    void testUpdateDuringLoadIsNotShared(Vertx vertx, VertxTestContext testContext) {
+        var cache = PostCache.create(10, Duration.ofMinutes(1));
+        SingleFlight<ByIdKey, Post> byId = SingleFlight.create("test");
+        var id = UUID.randomUUID();
+        var old = new Post(id, "old title", "content", LocalDateTime.now(), 0);
+        var updated = new Post(id, "updated title", "content", LocalDateTime.now(), 1);
+
+        vertx.runOnContext(v -> testContext.verify(() -> {
+            // a load started before the update
+            var inFlight = Promise.<Post>promise();
+            cache.getOrLoad(id, key -> byId.execute(new ByIdKey(key, cache.generation()), k -> inFlight.future()));
+
+            // the update is written, a reader missing now starts its own load
+            cache.invalidate(id);
+            var afterUpdate = cache.getOrLoad(id, key -> byId.execute(new ByIdKey(key, cache.generation()), k -> Future.succeededFuture(updated)));
+            inFlight.complete(old);
+
+            afterUpdate
+                .compose(post -> {
+                    assertThat(post).isEqualTo(updated);
+                    assertThat(byId.executions()).isEqualTo(2);
+                    return cache.getOrLoad(id, key -> Future.failedFuture("not cached"));
+                })
+                .onComplete(testContext.succeeding(cached -> testContext.verify(() -> {
+                    assertThat(cached).isEqualTo(updated);
+                    testContext.completeNow();
+                })));
+        }));
+    }
+
+    @Test
+    void testNothingSharedOffEventLoop(VertxTestContext testContext) {
+        SingleFlight<String, String> singleFlight = SingleFlight.create("test");
+        var promise = Promise.<String>promise();
+        var first = singleFlight.execute("key", key -> promise.future());
+        var second = singleFlight.execute("key", key -> Future.succeededFuture("not shared"));
+        testContext.verify(() -> {
+            assertThat(second).isNotSameAs(first);
+            assertThat(singleFlight.executions()).isEqualTo(2);
+        });
+        testContext.completeNow();
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.demo;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.*;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.Timeout;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -25,7 +27,9 @@ public class TestMainVerticle {
 
     @BeforeAll
     void setup(Vertx vertx, VertxTestContext testContext) {
-        vertx.deployVerticle(new MainVerticle())
+        // the list response cache is enabled, the writes of the tests must invalidate it
+        var config = new JsonObject().put("responseCache", new JsonObject().put("maxEntries", 16));
+        vertx.deployVerticle(new MainVerticle(), new DeploymentOptions().setConfig(config))
             .onComplete(
                 testContext.succeeding(
                     id-> {
@@ -84,6 +88,182 @@ public class TestMainVerticle {
     }
 
 
+    @Test
+    void testGetAllAfterWrite(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.GET, "/posts")
+            .flatMap(HttpClientRequest::send)
+            .flatMap(HttpClientResponse::body)
+            .flatMap(cached -> client.request(HttpMethod.POST, "/posts")
+                .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                    .send(Json.encode(CreatePostCommand.of("test title", "test content of my post")))
+                )
+                .flatMap(created -> client.request(HttpMethod.GET, "/posts")
+                    .flatMap(HttpClientRequest::send)
+                    .flatMap(HttpClientResponse::body)
+                    .flatMap(afterSave -> {
+                        assertThat(afterSave.toJsonArray().size()).isEqualTo(cached.toJsonArray().size() + 1);
+                        return client.request(HttpMethod.DELETE, created.getHeader("Location"))
+                            .flatMap(HttpClientRequest::send);
+                    })
+                )
+                .flatMap(deleted -> client.request(HttpMethod.GET, "/posts")
+                    .flatMap(HttpClientRequest::send)
+                    .flatMap(HttpClientResponse::body)
+                )
+                .map(afterDelete -> afterDelete.toJsonArray().size() - cached.toJsonArray().size())
+            )
+            .onComplete(
+                testContext.succeeding(
+                    difference -> testContext.verify(
+                        () -> {
+                            assertThat(difference).isZero();
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testGetAllByPage(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.GET, "/posts?limit=1")
+            .flatMap(HttpClientRequest::send)
+            .flatMap(response -> {
+                String link = response.getHeader("Link");
+                LOGGER.log(Level.INFO, "link header: {0}", link);
+                assertThat(link).isNotNull().contains("rel=\"next\"");
+                return response.body()
+                    .map(body -> {
+                        assertThat(body.toJsonArray().size()).isEqualTo(1);
+                        return link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+                    });
+            })
+            .flatMap(next -> client.request(HttpMethod.GET, next)
+                .flatMap(HttpClientRequest::send)
+                .flatMap(HttpClientResponse::body)
+            )
+            .onComplete(
+                testContext.succeeding(
+                    buffer -> testContext.verify(
+                        () -> {
+                            assertThat(buffer.toJsonArray().size()).isEqualTo(1);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testGetAllByInvalidCursor(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.GET, "/posts?after=invalid")
+            .flatMap(HttpClientRequest::send)
+            .onComplete(
+                testContext.succeeding(
+                    response -> testContext.verify(
+                        () -> {
+                            assertThat(response.statusCode()).isEqualTo(400);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+
+    @Test
+    void testExportResumesAfterCursor(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.GET, "/posts/export")
+            .flatMap(req -> req.putHeader("Accept", "application/x-ndjson").send())
+            .flatMap(HttpClientResponse::body)
+            .flatMap(all -> {
+                var lines = all.toString().lines().toList();
+                assertThat(lines).isNotEmpty();
+                var cursor = new JsonObject(lines.get(0)).getString("cursor");
+                return client.request(HttpMethod.GET, "/posts/export?since=" + cursor)
+                    .flatMap(req -> req.putHeader("Accept", "application/x-ndjson").send())
+                    .flatMap(HttpClientResponse::body)
+                    .map(rest -> lines.size() - rest.toString().lines().count());
+            })
+            .onComplete(
+                testContext.succeeding(
+                    skipped -> testContext.verify(
+                        () -> {
+                            assertThat(skipped).isEqualTo(1);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testBulkImportReportsInvalidLines(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.POST, "/posts:bulk")
+            .flatMap(req -> req.putHeader("Content-Type", "application/x-ndjson")
+                .send("\n{\"title\": \"missing content\"}\nnot json\n")
+            )
+            .flatMap(HttpClientResponse::body)
+            .onComplete(
+                testContext.succeeding(
+                    buffer -> testContext.verify(
+                        () -> {
+                            var report = buffer.toJsonObject();
+                            LOGGER.log(Level.INFO, "bulk import report: {0}", report);
+                            assertThat(report.getLong("rows")).isEqualTo(0);
+                            assertThat(report.getJsonArray("errors").size()).isEqualTo(2);
+                            assertThat(report.getJsonArray("errors").getJsonObject(0).getInteger("line")).isEqualTo(2);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testBulkImportReportsUnterminatedLastLine(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.POST, "/posts:bulk")
+            .flatMap(req -> req.putHeader("Content-Type", "application/x-ndjson")
+                .send("not json\n{\"title\": \"unterminated\", \"content\": \"not imported\"}")
+            )
+            .flatMap(HttpClientResponse::body)
+            .onComplete(
+                testContext.succeeding(
+                    buffer -> testContext.verify(
+                        () -> {
+                            var report = buffer.toJsonObject();
+                            assertThat(report.getLong("rows")).isEqualTo(0);
+                            assertThat(report.getJsonArray("errors").size()).isEqualTo(2);
+                            assertThat(report.getJsonArray("errors").getJsonObject(1).getInteger("line")).isEqualTo(2);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testBulkImportCapsListedErrors(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.POST, "/posts:bulk")
+            .flatMap(req -> req.putHeader("Content-Type", "application/x-ndjson")
+                .send("not json\n".repeat(150))
+            )
+            .flatMap(HttpClientResponse::body)
+            .onComplete(
+                testContext.succeeding(
+                    buffer -> testContext.verify(
+                        () -> {
+                            var report = buffer.toJsonObject();
+                            assertThat(report.getLong("lines")).isEqualTo(150);
+                            assertThat(report.getJsonArray("errors").size()).isEqualTo(100);
+                            assertThat(report.getLong("omittedErrors")).isEqualTo(50);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
     @Test
     void testGetByNoneExistingId(Vertx vertx, VertxTestContext testContext) {
         var postByIdUrl = "/posts/" + UUID.randomUUID();
@@ -198,4 +378,67 @@ public class TestMainVerticle {
             );
     }
 
+    @Test
+    void testConditionalRequests(Vertx vertx, VertxTestContext testContext) {
+        client.request(HttpMethod.POST, "/posts")
+            .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                .send(Json.encode(CreatePostCommand.of("test title", "test content of my post")))
+            )
+            .map(response -> response.getHeader("Location"))
+            .flatMap(url -> client.request(HttpMethod.GET, url)
+                .flatMap(HttpClientRequest::send)
+                .flatMap(response -> {
+                    String etag = response.getHeader("ETag");
+                    LOGGER.log(Level.INFO, "etag header: {0}", etag);
+                    assertThat(etag).isEqualTo("\"0\"");
+                    return client.request(HttpMethod.GET, url)
+                        .flatMap(req -> req.putHeader("If-None-Match", etag).send());
+                })
+                .flatMap(response -> {
+                    assertThat(response.statusCode()).isEqualTo(304);
+                    return client.request(HttpMethod.PUT, url)
+                        .flatMap(req -> req.putHeader("Content-Type", "application/json")
+                            .putHeader("If-Match", "\"0\"")
+                            .send(Json.encode(CreatePostCommand.of("updated test title", "updated test content of my post")))
+                        );
+                })
+                .flatMap(response -> {
+                    assertThat(response.statusCode()).isEqualTo(204);
+                    assertThat(response.getHeader("ETag")).isEqualTo("\"1\"");
+                    return client.request(HttpMethod.DELETE, url)
+                        .flatMap(req -> req.putHeader("If-Match", "\"0\"").send());
+                })
+                .flatMap(response -> {
+                    assertThat(response.statusCode()).isEqualTo(412);
+                    return client.request(HttpMethod.DELETE, url)
+                        .flatMap(req -> req.putHeader("If-Match", "\"1\"").send());
+                })
+            )
+            .onComplete(
+                testContext.succeeding(
+                    response -> testContext.verify(
+                        () -> {
+                            assertThat(response.statusCode()).isEqualTo(204);
+                            testContext.completeNow();
+                        }
+                    )
+                )
+            );
+    }
+
+    @Test
+    void testCacheInvalidationReachesTheOtherInstances(Vertx vertx, VertxTestContext testContext) {
+        var id = UUID.randomUUID();
+        var checkpoint = testContext.checkpoint();
+        var self = CacheInvalidation.eventBus(vertx)
+            .handler(received -> testContext.failNow("an instance must skip its own invalidations"));
+        var other = CacheInvalidation.eventBus(vertx)
+            .handler(received -> testContext.verify(() -> {
+                assertThat(received).isEqualTo(id);
+                checkpoint.flag();
+            }));
+        Future.all(self.start(), other.start())
+            .onComplete(testContext.succeeding(started -> self.publish(id)));
+    }
+
 }
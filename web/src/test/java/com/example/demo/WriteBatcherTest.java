@@ -0,0 +1,61 @@
+package com.example.demo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class WriteBatcherTest {
+
+    @Test
+    void testWritesConcurrentItemsTogether(Vertx vertx, VertxTestContext testContext) {
+        var batches = new ArrayList<List<String>>();
+        WriteBatcher<String, String> batcher = WriteBatcher.create(vertx, "test", 3, Duration.ofMillis(50), items -> {
+            batches.add(items);
+            return Future.succeededFuture(items.stream().map(String::toUpperCase).toList());
+        });
+        vertx.runOnContext(v -> {
+            // the first three items fill a batch, the last one is written after the delay
+            var results = List.of("a", "b", "c", "d").stream().map(batcher::submit).toList();
+            Future.all(results).onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+                assertThat(results.stream().map(Future::result).toList()).containsExactly("A", "B", "C", "D");
+                assertThat(batches).containsExactly(List.of("a", "b", "c"), List.of("d"));
+                testContext.completeNow();
+            })));
+        });
+    }
+
+    @Test
+    void testFailsEveryItemOfFailedBatch(Vertx vertx, VertxTestContext testContext) {
+        WriteBatcher<String, String> batcher = WriteBatcher.create(vertx, "test", 2, Duration.ofMillis(50),
+            items -> Future.failedFuture(new IllegalStateException("write failed")));
+        vertx.runOnContext(v -> {
+            var results = List.of("a", "b").stream().map(batcher::submit).toList();
+            Future.join(results).onComplete(ar -> testContext.verify(() -> {
+                assertThat(results).allSatisfy(result -> assertThat(result.cause()).hasMessage("write failed"));
+                assertThat(batcher.batches()).isEqualTo(1);
+                testContext.completeNow();
+            }));
+        });
+    }
+
+    @Test
+    void testFailsOnResultCountMismatch(Vertx vertx, VertxTestContext testContext) {
+        WriteBatcher<String, String> batcher = WriteBatcher.create(vertx, "test", 2, Duration.ofMillis(50),
+            items -> Future.succeededFuture(List.of("one", "too many")));
+        vertx.runOnContext(v -> batcher.submit("a")
+            .onComplete(testContext.failing(throwable -> testContext.verify(() -> {
+                assertThat(throwable).isInstanceOf(IllegalStateException.class);
+                testContext.completeNow();
+            }))));
+    }
+}